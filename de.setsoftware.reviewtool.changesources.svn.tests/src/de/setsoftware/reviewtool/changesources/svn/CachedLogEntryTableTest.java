@@ -0,0 +1,85 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+import org.tmatesoft.svn.core.SVNNodeKind;
+
+/**
+ * Tests for {@link CachedLogEntryTable}.
+ */
+public class CachedLogEntryTableTest {
+
+    private static CachedLogEntry entry(long revision, String author, SVNLogEntryPath... paths) {
+        final Map<String, SVNLogEntryPath> pathMap = new LinkedHashMap<>();
+        for (final SVNLogEntryPath path : paths) {
+            pathMap.put(path.getPath(), path);
+        }
+        return new CachedLogEntry(
+                new SVNLogEntry(pathMap, revision, author, new Date(1000 * revision), "msg" + revision));
+    }
+
+    @Test
+    public void testEntriesAreRestoredCompletely() {
+        final CachedLogEntryTable table = new CachedLogEntryTable();
+        table.add(entry(5, "tom",
+                new SVNLogEntryPath("/trunk/a.txt", SVNLogEntryPath.TYPE_MODIFIED, null, -1, SVNNodeKind.FILE),
+                new SVNLogEntryPath("/trunk/b", SVNLogEntryPath.TYPE_ADDED, "/branch/b", 3, SVNNodeKind.DIR)));
+        table.add(entry(7, null,
+                new SVNLogEntryPath("/trunk/a.txt", SVNLogEntryPath.TYPE_DELETED, null, -1, SVNNodeKind.NONE)));
+
+        final CachedLogEntryTable.Snapshot snapshot = table.snapshot();
+        assertEquals(2, snapshot.size());
+
+        final CachedLogEntry first = snapshot.get(0);
+        assertEquals(5, first.getRevision());
+        assertEquals("msg5", first.getMessage());
+        assertEquals("tom", first.getAuthor());
+        assertEquals(new Date(5000), first.getDate());
+        assertEquals(Arrays.asList("/trunk/a.txt", "/trunk/b"), Arrays.asList(
+                first.getChangedPaths().keySet().toArray()));
+        final CachedLogEntryPath changed = first.getChangedPaths().get("/trunk/a.txt");
+        assertEquals(SVNLogEntryPath.TYPE_MODIFIED, changed.getType());
+        assertEquals('F', changed.getKind());
+        assertNull(changed.getCopyPath());
+        assertEquals(4, changed.getAncestorRevision());
+        final CachedLogEntryPath copied = first.getChangedPaths().get("/trunk/b");
+        assertEquals(SVNLogEntryPath.TYPE_ADDED, copied.getType());
+        assertEquals('D', copied.getKind());
+        assertEquals("/branch/b", copied.getCopyPath());
+        assertEquals(3, copied.getAncestorRevision());
+
+        final CachedLogEntry second = snapshot.get(1);
+        assertNull(second.getAuthor());
+        assertEquals(SVNLogEntryPath.TYPE_DELETED, second.getChangedPaths().get("/trunk/a.txt").getType());
+        assertEquals(' ', second.getChangedPaths().get("/trunk/a.txt").getKind());
+    }
+
+    @Test
+    public void testSnapshotIsNotChangedByLaterEntries() {
+        final CachedLogEntryTable table = new CachedLogEntryTable();
+        for (long revision = 1; revision <= 10; revision++) {
+            table.add(entry(revision, "tom"));
+        }
+        final CachedLogEntryTable.Snapshot snapshot = table.snapshot();
+        for (long revision = 11; revision <= 100; revision++) {
+            table.add(entry(revision, "tom"));
+        }
+
+        assertEquals(10, snapshot.size());
+        assertEquals(10, snapshot.reversed().get(0).getRevision());
+        assertEquals(1, snapshot.reversed().get(9).getRevision());
+        assertEquals(100, table.snapshot().size());
+        assertEquals(41, table.snapshot().indexOf(42));
+        assertEquals(-11, snapshot.indexOf(42));
+    }
+
+}
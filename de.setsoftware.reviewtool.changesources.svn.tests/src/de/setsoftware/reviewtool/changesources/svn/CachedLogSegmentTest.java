@@ -0,0 +1,160 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+import org.tmatesoft.svn.core.SVNNodeKind;
+
+/**
+ * Tests for {@link CachedLogSegment} and {@link CachedLogStorage}.
+ */
+public class CachedLogSegmentTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static CachedLogEntry entry(long revision, String message, SVNLogEntryPath... paths) {
+        final Map<String, SVNLogEntryPath> pathMap = new LinkedHashMap<>();
+        for (final SVNLogEntryPath path : paths) {
+            pathMap.put(path.getPath(), path);
+        }
+        return new CachedLogEntry(new SVNLogEntry(pathMap, revision, "author" + revision,
+                new Date(1000L * revision), message));
+    }
+
+    private static SVNLogEntryPath modified(String path) {
+        return new SVNLogEntryPath(path, SVNLogEntryPath.TYPE_MODIFIED, null, -1, SVNNodeKind.FILE);
+    }
+
+    private static SVNLogEntryPath copied(String path, String copyPath, long copyRevision) {
+        return new SVNLogEntryPath(path, SVNLogEntryPath.TYPE_ADDED, copyPath, copyRevision, SVNNodeKind.DIR);
+    }
+
+    private static void assertSameEntry(CachedLogEntry expected, CachedLogEntry actual) {
+        assertEquals(expected.getRevision(), actual.getRevision());
+        assertEquals(expected.getMessage(), actual.getMessage());
+        assertEquals(expected.getAuthor(), actual.getAuthor());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getChangedPaths().keySet(), actual.getChangedPaths().keySet());
+        for (final String path : expected.getChangedPaths().keySet()) {
+            final CachedLogEntryPath e = expected.getChangedPaths().get(path);
+            final CachedLogEntryPath a = actual.getChangedPaths().get(path);
+            assertEquals(e.getPath(), a.getPath());
+            assertEquals(e.getCopyPath(), a.getCopyPath());
+            assertEquals(e.getAncestorRevision(), a.getAncestorRevision());
+            assertEquals(e.isFile(), a.isFile());
+            assertEquals(e.isDir(), a.isDir());
+            assertEquals(e.isNew(), a.isNew());
+            assertEquals(e.isDeleted(), a.isDeleted());
+        }
+    }
+
+    private static List<Long> revisions(List<CachedLogEntry> entries) {
+        final Long[] ret = new Long[entries.size()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = entries.get(i).getRevision();
+        }
+        return Arrays.asList(ret);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final List<CachedLogEntry> entries = Arrays.asList(
+                entry(12, "TIC-1: änderung", modified("/trunk/a.txt"), copied("/trunk/b", "/trunk/a", 10)),
+                entry(11, null),
+                entry(10, "TIC-2 initial", modified("/trunk/a/x.java")));
+        final File dir = this.tempFolder.newFolder();
+
+        final CachedLogSegment written = CachedLogSegment.write(dir, "C:\\wc", entries);
+        final CachedLogSegment segment = CachedLogSegment.open(written.getFile());
+
+        assertEquals("C:\\wc", segment.getWorkingCopyRoot());
+        assertEquals(10, segment.getMinRevision());
+        assertEquals(12, segment.getMaxRevision());
+        assertEquals(3, segment.getEntryCount());
+        final List<CachedLogEntry> read = segment.readEntries();
+        assertEquals(3, read.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertSameEntry(entries.get(i), read.get(i));
+        }
+        assertNull(read.get(1).getMessage());
+    }
+
+    @Test
+    public void testStorageAppendsAndLoadsNewestFirst() throws Exception {
+        final File dir = this.tempFolder.newFolder();
+        final CachedLogStorage storage = new CachedLogStorage(dir);
+        storage.append("wc1", Arrays.asList(entry(5, "a"), entry(3, "b")), 100);
+        storage.append("wc2", Arrays.asList(entry(4, "c")), 100);
+        storage.append("wc1", Arrays.asList(entry(9, "d"), entry(7, "e")), 100);
+
+        assertEquals(Arrays.asList(9L, 7L, 5L, 3L), revisions(storage.load("wc1")));
+        assertEquals(Arrays.asList(4L), revisions(storage.load("wc2")));
+
+        final CachedLogStorage reopened = new CachedLogStorage(dir);
+        assertEquals(Arrays.asList(9L, 7L, 5L, 3L), revisions(reopened.load("wc1")));
+        assertEquals(Arrays.asList(4L), revisions(reopened.load("wc2")));
+        assertTrue(reopened.load("wc3").isEmpty());
+    }
+
+    @Test
+    public void testCompactionMergesAndTrims() throws Exception {
+        final File dir = this.tempFolder.newFolder();
+        final CachedLogStorage storage = new CachedLogStorage(dir);
+        storage.append("wc", Arrays.asList(entry(2, "a"), entry(1, "b")), 100);
+        storage.append("wc", Arrays.asList(entry(4, "c"), entry(3, "d")), 100);
+        storage.append("wc", Arrays.asList(entry(6, "e"), entry(5, "f")), 100);
+
+        storage.compact("wc", 3);
+
+        assertEquals(Arrays.asList(6L, 5L, 4L), revisions(storage.load("wc")));
+        assertEquals(1, dir.listFiles().length);
+        assertEquals(Arrays.asList(6L, 5L, 4L), revisions(new CachedLogStorage(dir).load("wc")));
+    }
+
+    @Test
+    public void testReplaceAfterFailedBackfillLeavesNoGap() throws Exception {
+        final File dir = this.tempFolder.newFolder();
+        final CachedLogStorage storage = new CachedLogStorage(dir);
+        storage.append("wc", Arrays.asList(entry(3, "TIC-1 old"), entry(2, "b")), 100);
+        storage.append("wc", Arrays.asList(entry(5, "c"), entry(4, "d")), 100);
+        storage.append("other", Arrays.asList(entry(1, "e")), 100);
+
+        //only the newest entries and the first backfill page (revisions 20 to 15) could be loaded,
+        //  revisions 6 to 14 are missing
+        storage.replace("wc", Arrays.asList(entry(21, "TIC-2 new"), entry(20, "f"), entry(15, "g")), 100);
+
+        assertEquals(Arrays.asList(21L, 20L, 15L), revisions(storage.load("wc")));
+        final CachedLogStorage reopened = new CachedLogStorage(dir);
+        assertEquals(Arrays.asList(21L, 20L, 15L), revisions(reopened.load("wc")));
+        assertTrue(reopened.loadKeyIndex("wc").lookup("TIC-1").isEmpty());
+        assertEquals(1, reopened.loadKeyIndex("wc").lookup("TIC-2").size());
+        assertEquals(Arrays.asList(1L), revisions(reopened.load("other")));
+    }
+
+    @Test
+    public void testReplaceTrimsToMaxEntries() throws Exception {
+        final File dir = this.tempFolder.newFolder();
+        final CachedLogStorage storage = new CachedLogStorage(dir);
+        storage.append("wc", Arrays.asList(entry(2, "a")), 100);
+
+        storage.replace("wc", Arrays.asList(entry(9, "b"), entry(8, "c"), entry(7, "d")), 2);
+
+        assertEquals(Arrays.asList(9L, 8L), revisions(new CachedLogStorage(dir).load("wc")));
+        assertEquals(1, dir.listFiles().length);
+    }
+
+}
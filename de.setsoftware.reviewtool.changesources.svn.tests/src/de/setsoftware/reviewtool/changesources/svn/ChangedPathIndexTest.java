@@ -0,0 +1,81 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+import org.tmatesoft.svn.core.SVNNodeKind;
+
+/**
+ * Tests for {@link ChangedPathIndex}.
+ */
+public class ChangedPathIndexTest {
+
+    private static CachedLogEntry entry(long revision, SVNLogEntryPath... paths) {
+        final Map<String, SVNLogEntryPath> pathMap = new LinkedHashMap<>();
+        for (final SVNLogEntryPath path : paths) {
+            pathMap.put(path.getPath(), path);
+        }
+        return new CachedLogEntry(new SVNLogEntry(pathMap, revision, "author", new Date(revision), "msg"));
+    }
+
+    private static SVNLogEntryPath modified(String path) {
+        return new SVNLogEntryPath(path, SVNLogEntryPath.TYPE_MODIFIED, null, -1, SVNNodeKind.FILE);
+    }
+
+    private static SVNLogEntryPath copied(String path, String copyPath, long copyRevision) {
+        return new SVNLogEntryPath(path, SVNLogEntryPath.TYPE_ADDED, copyPath, copyRevision, SVNNodeKind.DIR);
+    }
+
+    private static ChangedPathIndex index(CachedLogEntry... entries) {
+        final ChangedPathIndex ret = new ChangedPathIndex();
+        for (final CachedLogEntry entry : entries) {
+            ret.add(entry);
+        }
+        return ret;
+    }
+
+    private static TreeSet<Long> revisions(Long... revisions) {
+        return new TreeSet<>(Arrays.asList(revisions));
+    }
+
+    @Test
+    public void testFindsSamePathParentsAndChildren() {
+        final ChangedPathIndex index = index(
+                entry(1, modified("/trunk/a/x.txt")),
+                entry(2, modified("/trunk/a/y.txt")),
+                entry(3, modified("/trunk/a/x.txt"), modified("/trunk/b.txt")),
+                entry(4, modified("/trunk/a")),
+                entry(5, modified("/trunk/a/x.txt/sub")),
+                entry(6, modified("/trunk/a/x.txt2")),
+                entry(7, modified("/trunk")));
+
+        assertEquals(revisions(1L, 3L, 4L, 5L, 7L),
+                index.findRevisionsTouching(Collections.singleton("/trunk/a/x.txt"), 0));
+        assertEquals(revisions(4L, 5L, 7L),
+                index.findRevisionsTouching(Collections.singleton("/trunk/a/x.txt"), 3));
+        assertEquals(revisions(2L, 3L, 4L, 7L),
+                index.findRevisionsTouching(Arrays.asList("/trunk/a/y.txt", "/trunk/b.txt"), 1));
+        assertEquals(revisions(),
+                index.findRevisionsTouching(Collections.singleton("/branches/x"), 0));
+    }
+
+    @Test
+    public void testIndexesCopySources() {
+        final ChangedPathIndex index = index(
+                entry(10, copied("/branches/b1", "/trunk", 9)),
+                entry(11, modified("/branches/b1/a.txt")));
+
+        assertEquals(revisions(10L), index.findRevisionsTouching(Collections.singleton("/trunk/a.txt"), 0));
+        assertEquals(revisions(10L, 11L), index.findRevisionsTouching(Collections.singleton("/branches/b1"), 0));
+    }
+
+}
@@ -0,0 +1,54 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SvnChangeSource}.
+ */
+public class SvnChangeSourceTest {
+
+    private static final File BASE = new File(System.getProperty("java.io.tmpdir"), "wcs");
+    private static final File OUTER = new File(BASE, "outer");
+    private static final File INNER = new File(OUTER, "lib/external");
+    private static final File OTHER = new File(BASE, "other");
+
+    private static Path path(File parent, String child) {
+        return new File(parent, child).toPath().toAbsolutePath().normalize();
+    }
+
+    @Test
+    public void testPathInSingleRoot() {
+        assertEquals(OTHER, SvnChangeSource.findDeepestContainingRoot(
+                path(OTHER, "src/A.java"), Arrays.asList(OUTER, OTHER)));
+    }
+
+    @Test
+    public void testPathOutsideOfRoots() {
+        assertNull(SvnChangeSource.findDeepestContainingRoot(
+                path(BASE, "outside/A.java"), Arrays.asList(OUTER, OTHER)));
+    }
+
+    @Test
+    public void testPathInNestedRootBelongsToInnerRoot() {
+        assertEquals(INNER, SvnChangeSource.findDeepestContainingRoot(
+                path(INNER, "src/A.java"), Arrays.asList(OUTER, INNER)));
+        assertEquals(INNER, SvnChangeSource.findDeepestContainingRoot(
+                path(INNER, "src/A.java"), Arrays.asList(INNER, OUTER)));
+    }
+
+    @Test
+    public void testPathBesideNestedRootBelongsToOuterRoot() {
+        assertEquals(OUTER, SvnChangeSource.findDeepestContainingRoot(
+                path(OUTER, "lib/other/A.java"), Arrays.asList(OUTER, INNER)));
+        assertEquals(OUTER, SvnChangeSource.findDeepestContainingRoot(
+                path(OUTER, "lib/externalX/A.java"), Arrays.asList(INNER, OUTER)));
+    }
+
+}
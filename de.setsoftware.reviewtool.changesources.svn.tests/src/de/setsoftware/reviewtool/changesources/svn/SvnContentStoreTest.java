@@ -0,0 +1,72 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link SvnContentStore}.
+ */
+public class SvnContentStoreTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testContentsAreStoredPersistentlyAndDeduplicated() throws Exception {
+        final File dir = this.tempFolder.newFolder();
+        final SvnContentStore store = new SvnContentStore(dir, 1000);
+        store.put("repo", "/trunk/a.txt", 1, bytes("abc"));
+        store.put("repo", "/trunk/a.txt", 2, bytes("abc"));
+        store.put("repo", "/trunk/b.txt", 2, bytes("de"));
+        store.put("otherRepo", "/trunk/a.txt", 1, bytes("xyz"));
+
+        assertEquals(8, store.getTotalSize());
+        final SvnContentStore reopened = new SvnContentStore(dir, 1000);
+        assertEquals(8, reopened.getTotalSize());
+        assertArrayEquals(bytes("abc"), reopened.get("repo", "/trunk/a.txt", 1));
+        assertArrayEquals(bytes("abc"), reopened.get("repo", "/trunk/a.txt", 2));
+        assertArrayEquals(bytes("de"), reopened.get("repo", "/trunk/b.txt", 2));
+        assertArrayEquals(bytes("xyz"), reopened.get("otherRepo", "/trunk/a.txt", 1));
+        assertNull(reopened.get("repo", "/trunk/a.txt", 3));
+        assertNull(reopened.get("repo", "/trunk/c.txt", 1));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedContentsAreEvicted() throws Exception {
+        final File dir = this.tempFolder.newFolder();
+        final SvnContentStore store = new SvnContentStore(dir, 10);
+        store.put("repo", "/a", 1, bytes("1111"));
+        store.put("repo", "/b", 1, bytes("2222"));
+        store.get("repo", "/a", 1);
+        store.put("repo", "/c", 1, bytes("3333"));
+
+        assertEquals(8, store.getTotalSize());
+        assertArrayEquals(bytes("1111"), store.get("repo", "/a", 1));
+        assertNull(store.get("repo", "/b", 1));
+        assertArrayEquals(bytes("3333"), store.get("repo", "/c", 1));
+
+        //evicted contents are stored again when they are put again
+        store.put("repo", "/b", 1, bytes("2222"));
+        assertArrayEquals(bytes("2222"), store.get("repo", "/b", 1));
+        assertNull(store.get("repo", "/a", 1));
+        assertEquals(8, store.getTotalSize());
+
+        store.setMaxSize(0);
+        assertEquals(0, store.getTotalSize());
+        assertNull(new SvnContentStore(dir, 10).get("repo", "/a", 1));
+        assertNull(new SvnContentStore(dir, 10).get("repo", "/b", 1));
+    }
+
+}
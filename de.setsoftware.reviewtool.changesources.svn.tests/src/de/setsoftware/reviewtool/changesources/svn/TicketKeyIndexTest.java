@@ -0,0 +1,88 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tmatesoft.svn.core.SVNLogEntry;
+
+/**
+ * Tests for {@link TicketKeyIndex}.
+ */
+public class TicketKeyIndexTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static CachedLogEntry entry(long revision, String message) {
+        return new CachedLogEntry(new SVNLogEntry(
+                Collections.emptyMap(), revision, "author", new Date(revision), message));
+    }
+
+    private static TicketKeyIndex index(CachedLogEntry... entries) {
+        final TicketKeyIndex ret = new TicketKeyIndex();
+        for (final CachedLogEntry entry : entries) {
+            ret.add(entry);
+        }
+        return ret;
+    }
+
+    @Test
+    public void testIsIndexable() {
+        assertTrue(TicketKeyIndex.isIndexable("TIC-123"));
+        assertTrue(TicketKeyIndex.isIndexable("Proj_2-7"));
+        assertFalse(TicketKeyIndex.isIndexable("123"));
+        assertFalse(TicketKeyIndex.isIndexable("1A-2"));
+        assertFalse(TicketKeyIndex.isIndexable("A-B-2"));
+        assertFalse(TicketKeyIndex.isIndexable("TIC 123"));
+    }
+
+    @Test
+    public void testExtractKeys() {
+        assertEquals(new LinkedHashSet<>(Arrays.asList("TIC-12", "IC-12", "C-12", "AB-3", "B-3")),
+                TicketKeyIndex.extractKeys("TIC-12: fixed, see 1AB-3"));
+        assertEquals(Collections.emptySet(), TicketKeyIndex.extractKeys("no key"));
+        assertEquals(Collections.emptySet(), TicketKeyIndex.extractKeys(null));
+    }
+
+    @Test
+    public void testLookupFindsAllMessagesContainingTheKey() {
+        final TicketKeyIndex index = index(
+                entry(1, "TIC-12 first"),
+                entry(2, "TIC-123 other ticket"),
+                entry(3, "XTIC-12 prefixed"),
+                entry(4, "TIC-1 shorter"),
+                entry(5, "tic-12 lowercase"),
+                entry(6, "X-1TIC-12"),
+                entry(7, "follow-up for TIC-12"));
+
+        assertEquals(new TreeSet<>(Arrays.asList(1L, 2L, 3L, 6L, 7L)), index.lookup("TIC-12"));
+        assertEquals(new TreeSet<>(Arrays.asList(2L)), index.lookup("TIC-123"));
+        assertEquals(new TreeSet<>(Arrays.asList(1L, 2L, 3L, 4L, 6L, 7L)), index.lookup("TIC-1"));
+        assertEquals(new TreeSet<Long>(), index.lookup("OTHER-12"));
+    }
+
+    @Test
+    public void testIndexIsStoredInSegments() throws Exception {
+        final File dir = this.tempFolder.newFolder();
+        final CachedLogStorage storage = new CachedLogStorage(dir);
+        storage.append("wc", Arrays.asList(entry(5, "TIC-2 b"), entry(3, "TIC-1 a")), 100);
+        storage.append("wc", Arrays.asList(entry(9, "TIC-1 c")), 100);
+
+        final TicketKeyIndex index = new CachedLogStorage(dir).loadKeyIndex("wc");
+        assertEquals(new TreeSet<>(Arrays.asList(3L, 9L)), index.lookup("TIC-1"));
+        assertEquals(new TreeSet<>(Arrays.asList(5L)), index.lookup("TIC-2"));
+        assertEquals(new TreeSet<Long>(), new CachedLogStorage(dir).loadKeyIndex("other").lookup("TIC-1"));
+    }
+
+}
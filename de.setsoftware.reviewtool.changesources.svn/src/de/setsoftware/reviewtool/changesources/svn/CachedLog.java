@@ -1,33 +1,30 @@
 package de.setsoftware.reviewtool.changesources.svn;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Platform;
-import org.osgi.framework.Bundle;
 import org.osgi.framework.FrameworkUtil;
 import org.tmatesoft.svn.core.ISVNLogEntryHandler;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNLogEntry;
 import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.io.SVNRepository;
 import org.tmatesoft.svn.core.wc.SVNClientManager;
 import org.tmatesoft.svn.core.wc.SVNRevision;
 
@@ -57,24 +54,110 @@ public class CachedLog {
         }
     }
 
+    /**
+     * The cached data of a single working copy root. The data is guarded by the object's monitor, which is only held
+     * for short in-memory operations. Network access is serialized by the separate refresh lock, so that a slow
+     * server only blocks refreshes of its own working copy roots, but neither other working copy roots
+     * nor readers.
+     */
+    private static final class WorkingCopyLog {
+
+        private final Object refreshLock = new Object();
+        private volatile RepoDataCache repoData;
+        private CachedLogEntryTable table;
+        private CachedLogEntryTable.Snapshot entries;
+        private TicketKeyIndex keyIndex;
+        private ChangedPathIndex pathIndex;
+
+        public RepoDataCache getRepoData() {
+            return this.repoData;
+        }
+
+        /**
+         * Returns the entries, ordered from newest to oldest.
+         */
+        public synchronized List<CachedLogEntry> getEntries() {
+            return this.entries == null ? null : this.entries.reversed();
+        }
+
+        public synchronized boolean isLoaded() {
+            return this.entries != null;
+        }
+
+        public synchronized void setLoadedEntries(List<CachedLogEntry> entriesNewestFirst, TicketKeyIndex keyIndex) {
+            this.table = new CachedLogEntryTable();
+            this.keyIndex = keyIndex;
+            this.pathIndex = new ChangedPathIndex();
+            this.addToTable(entriesNewestFirst);
+        }
+
+        public synchronized long getLastKnownRevision() {
+            final int size = this.entries.size();
+            return size == 0 ? 0 : this.entries.getRevision(size - 1);
+        }
+
+        public synchronized void addNewEntries(List<CachedLogEntry> newEntriesNewestFirst) {
+            for (final CachedLogEntry entry : newEntriesNewestFirst) {
+                this.keyIndex.add(entry);
+            }
+            this.addToTable(newEntriesNewestFirst);
+        }
+
+        /**
+         * Appends the given entries to the table and the path index. Both need the entries in ascending order.
+         */
+        private void addToTable(List<CachedLogEntry> entriesNewestFirst) {
+            for (int i = entriesNewestFirst.size() - 1; i >= 0; i--) {
+                final CachedLogEntry entry = entriesNewestFirst.get(i);
+                this.table.add(entry);
+                this.pathIndex.add(entry);
+            }
+            this.entries = this.table.snapshot();
+        }
+
+        /**
+         * Returns the entries mentioning the given ticket key, ordered from newest to oldest.
+         */
+        public synchronized List<CachedLogEntry> lookupTicketKey(String ticketKey) {
+            if (this.entries == null) {
+                return Collections.emptyList();
+            }
+            final List<CachedLogEntry> ret = findEntries(this.entries, this.keyIndex.lookup(ticketKey));
+            Collections.reverse(ret);
+            return ret;
+        }
+
+        /**
+         * Returns the entries that are newer than the given revision and touched one of the given paths,
+         * one of their parent directories or a path below them, ordered by ascending revision.
+         */
+        public synchronized List<CachedLogEntry> getEntriesTouching(Collection<String> paths, long minRevision) {
+            if (this.entries == null) {
+                return Collections.emptyList();
+            }
+            return findEntries(this.entries, this.pathIndex.findRevisionsTouching(paths, minRevision));
+        }
+    }
+
+    private static final String CACHE_DIRECTORY = "svnlog";
+    private static final int BACKFILL_PAGES_IN_PARALLEL = 4;
+    private static final String LEGACY_CACHE_FILE = "svnlog.cache";
+
     private static final CachedLog INSTANCE = new CachedLog();
 
-    private final Map<String, RepoDataCache> repoDataPerWcRoot;
-    private final Map<String, List<CachedLogEntry>> entriesPerWcRoot;
-    private int minCount;
-    private int maxCount;
+    private final ConcurrentMap<String, WorkingCopyLog> logPerWcRoot;
+    private final CachedLogStorage storage;
+    private volatile int minCount;
+    private volatile int maxCount;
 
     private CachedLog() {
-        this.repoDataPerWcRoot = new HashMap<>();
-        this.entriesPerWcRoot = new HashMap<>();
+        this.logPerWcRoot = new ConcurrentHashMap<>();
         this.minCount = 1000;
         this.maxCount = 1000;
 
-        try {
-            this.readCacheFromFile();
-        } catch (final ClassNotFoundException | IOException | ClassCastException e) {
-            Logger.error("problem while loading svn cache", e);
-        }
+        final IPath stateLocation = Platform.getStateLocation(FrameworkUtil.getBundle(this.getClass()));
+        this.deleteLegacyCacheFile(stateLocation);
+        this.storage = new CachedLogStorage(stateLocation.append(CACHE_DIRECTORY).toFile());
     }
 
     public static CachedLog getInstance() {
@@ -94,22 +177,79 @@ public class CachedLog {
      */
     public Collection<SvnRepo> getRepositories() {
         final List<SvnRepo> result = new ArrayList<>();
-        for (final RepoDataCache info : this.repoDataPerWcRoot.values()) {
-            result.add(info.getRepo());
+        for (final WorkingCopyLog log : this.logPerWcRoot.values()) {
+            final RepoDataCache info = log.getRepoData();
+            if (info != null) {
+                result.add(info.getRepo());
+            }
         }
         return result;
     }
 
     /**
-     * Calls the given handler for all recent log entries of the given working copy root.
+     * Loads the log entries of the given working copy root that are not cached yet.
+     * Can be called concurrently for different working copy roots, but the given {@link SVNClientManager}
+     * must not be used by other threads at the same time.
+     * @return The number of new log entries.
+     */
+    public int refresh(final SVNClientManager mgr, final File workingCopyRoot) throws SVNException {
+        final WorkingCopyLog log = this.getLog(workingCopyRoot);
+        synchronized (log.refreshLock) {
+            final RepoDataCache repoCache = this.getRepoCache(mgr, workingCopyRoot, log);
+            final String wcRootString = workingCopyRoot.toString();
+            if (!log.isLoaded()) {
+                log.setLoadedEntries(this.storage.load(wcRootString), this.storage.loadKeyIndex(wcRootString));
+            }
+
+            final long lastKnownRevision = log.getLastKnownRevision();
+            final List<CachedLogEntry> newEntries = this.loadNewEntries(mgr, repoCache, lastKnownRevision);
+            final boolean contiguous = lastKnownRevision <= 0 || newEntries.size() < this.minCount
+                    || this.backfill(mgr, repoCache, newEntries, lastKnownRevision);
+            if (!contiguous) {
+                //the known entries are not contiguous with the new ones (the maximal number of entries has been
+                //  reached or the backfill failed) and are dropped. They are also dropped from the storage,
+                //  otherwise the gap would never be filled, as only entries newer than the newest one are loaded
+                log.setLoadedEntries(Collections.<CachedLogEntry>emptyList(), new TicketKeyIndex());
+            }
+            log.addNewEntries(newEntries);
+
+            try {
+                if (contiguous) {
+                    this.storage.append(wcRootString, newEntries, this.maxCount);
+                } else {
+                    this.storage.replace(wcRootString, newEntries, this.maxCount);
+                }
+            } catch (final IOException e) {
+                Logger.error("problem while caching svn log", e);
+            }
+            return newEntries.size();
+        }
+    }
+
+    /**
+     * Calls the given handler for the cached log entries of the given working copy root.
+     * When a ticket key is given, only the entries mentioning the key are passed to the handler. These are
+     * determined with the ticket key index, so that the messages of the other entries need not be inspected.
+     * {@link #refresh(SVNClientManager, File)} has to be called before to load the current log entries.
+     * @param ticketKey The ticket key to look up, or null to pass all recent entries to the handler.
+     *      The key has to be indexable.
      */
     public void traverseRecentEntries(
-            final SVNClientManager mgr, final File workingCopyRoot, final CachedLogLookupHandler handler,
-            final IChangeSourceUi ui) throws SVNException {
+            final File workingCopyRoot, final String ticketKey,
+            final CachedLogLookupHandler handler, final IChangeSourceUi ui) throws SVNException {
 
-        final RepoDataCache repoCache = this.getRepoCache(mgr, workingCopyRoot);
+        final WorkingCopyLog log = this.getLog(workingCopyRoot);
+        final RepoDataCache repoCache = log.getRepoData();
+        if (repoCache == null) {
+            return;
+        }
         handler.startNewRepo(repoCache.getRepo());
-        for (final CachedLogEntry entry : this.getEntries(mgr, repoCache)) {
+        final List<CachedLogEntry> entries =
+                ticketKey == null ? log.getEntries() : log.lookupTicketKey(ticketKey);
+        if (entries == null) {
+            return;
+        }
+        for (final CachedLogEntry entry : entries) {
             if (ui.isCanceled()) {
                 throw new OperationCanceledException();
             }
@@ -117,6 +257,16 @@ public class CachedLog {
         }
     }
 
+    /**
+     * Returns the cached log entries of the given repository that are newer than the given revision and touched
+     * one of the given paths, one of their parent directories or a path below them. The entries are determined
+     * with the changed path index and are ordered by ascending revision.
+     */
+    public List<CachedLogEntry> getEntriesTouching(
+            final SvnRepo repo, final Collection<String> paths, final long minRevision) {
+        return this.getLog(repo.getLocalRoot()).getEntriesTouching(paths, minRevision);
+    }
+
     /**
      * Maps the root of a working copy to the corresponding {@link SvnRepo} object.
      * @param workingCopyRoot The path pointing at the root of some working copy.
@@ -124,12 +274,36 @@ public class CachedLog {
      */
     public SvnRepo mapWorkingCopyRootToRepository(final SVNClientManager mgr, final File workingCopyRoot)
             throws SVNException {
-        final RepoDataCache cache = this.getRepoCache(mgr, workingCopyRoot);
+        final WorkingCopyLog log = this.getLog(workingCopyRoot);
+        RepoDataCache cache = log.getRepoData();
+        if (cache == null) {
+            synchronized (log.refreshLock) {
+                cache = this.getRepoCache(mgr, workingCopyRoot, log);
+            }
+        }
         return cache == null ? null : cache.getRepo();
     }
 
-    private synchronized RepoDataCache getRepoCache(SVNClientManager mgr, File workingCopyRoot) throws SVNException {
-        RepoDataCache c = this.repoDataPerWcRoot.get(workingCopyRoot.toString());
+    private WorkingCopyLog getLog(File workingCopyRoot) {
+        final String key = workingCopyRoot.toString();
+        final WorkingCopyLog existing = this.logPerWcRoot.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        final WorkingCopyLog newLog = new WorkingCopyLog();
+        final WorkingCopyLog raced = this.logPerWcRoot.putIfAbsent(key, newLog);
+        return raced != null ? raced : newLog;
+    }
+
+    /**
+     * Returns the repository data of the given working copy root, determining it if necessary.
+     * Has to be called with the log's refresh lock held.
+     */
+    private RepoDataCache getRepoCache(SVNClientManager mgr, File workingCopyRoot, WorkingCopyLog log)
+        throws SVNException {
+
+        assert Thread.holdsLock(log.refreshLock);
+        RepoDataCache c = log.getRepoData();
         if (c == null) {
             final SVNURL rootUrl = mgr.getLogClient().getReposRoot(workingCopyRoot, null, SVNRevision.HEAD);
             final SVNURL wcUrl = mgr.getWCClient().doInfo(workingCopyRoot, SVNRevision.WORKING).getURL();
@@ -141,42 +315,33 @@ public class CachedLog {
                     rootUrl,
                     relPath,
                     this.determineCheckoutPrefix(mgr, workingCopyRoot, rootUrl)));
-            this.repoDataPerWcRoot.put(workingCopyRoot.toString(), c);
+            log.repoData = c;
         }
         return c;
     }
 
-    private synchronized List<CachedLogEntry> getEntries(SVNClientManager mgr, RepoDataCache repoCache)
-        throws SVNException {
-
-        final String wcRootString = repoCache.getRepo().getLocalRoot().toString();
-        List<CachedLogEntry> list = this.entriesPerWcRoot.get(wcRootString);
-        if (list == null) {
-            list = new CopyOnWriteArrayList<>();
-            this.entriesPerWcRoot.put(wcRootString, list);
-        }
-
-        final boolean gotNewEntries = this.loadNewEntries(mgr, repoCache, list);
-
-        if (gotNewEntries) {
-            try {
-                this.storeCacheToFile();
-            } catch (final IOException e) {
-                Logger.error("problem while caching svn log", e);
+    /**
+     * Returns the entries with the given revisions, ordered by ascending revision. Revisions that are not contained
+     * in the given snapshot are ignored.
+     */
+    private static List<CachedLogEntry> findEntries(
+            CachedLogEntryTable.Snapshot entries, SortedSet<Long> revisions) {
+        final List<CachedLogEntry> ret = new ArrayList<>(revisions.size());
+        for (final Long revision : revisions) {
+            final int index = entries.indexOf(revision);
+            if (index >= 0) {
+                ret.add(entries.get(index));
             }
         }
-
-        return list;
+        return ret;
     }
 
-    private boolean loadNewEntries(SVNClientManager mgr, RepoDataCache repoCache, List<CachedLogEntry> list)
-        throws SVNException {
-
-        final long lastKnownRevision = list.isEmpty() ? 0 : list.get(0).getRevision();
+    private List<CachedLogEntry> loadNewEntries(
+            SVNClientManager mgr, RepoDataCache repoCache, final long lastKnownRevision) throws SVNException {
 
         final ArrayList<CachedLogEntry> newEntries = new ArrayList<>();
         mgr.getLogClient().doLog(
-                repoCache.getRepo().getRemoteUrl(),
+                repoCache.getRepo().getAccessUrl(),
                 new String[] { repoCache.relPath },
                 SVNRevision.HEAD,
                 SVNRevision.HEAD,
@@ -201,8 +366,87 @@ public class CachedLog {
                 return Long.compare(o2.getRevision(), o1.getRevision());
             }
         });
-        list.addAll(0, newEntries);
-        return !newEntries.isEmpty();
+        return newEntries;
+    }
+
+    /**
+     * Closes the gap between the given new entries and the known entries. As only the newest minCount entries are
+     * loaded by {@link #loadNewEntries}, there can be further new entries that are older. They are loaded in pages
+     * of revision ranges, several pages concurrently, until the gap is closed or the maximal number of entries
+     * has been reached.
+     * @param newEntries The new entries, ordered from newest to oldest. The older entries are appended.
+     * @return true iff the gap has been closed.
+     */
+    private boolean backfill(
+            final SVNClientManager mgr,
+            final RepoDataCache repoCache,
+            final List<CachedLogEntry> newEntries,
+            final long lastKnownRevision) {
+
+        final ExecutorService executor = Executors.newFixedThreadPool(BACKFILL_PAGES_IN_PARALLEL);
+        try {
+            long upperRevision = newEntries.get(newEntries.size() - 1).getRevision() - 1;
+            while (upperRevision > lastKnownRevision) {
+                if (newEntries.size() >= this.maxCount) {
+                    return false;
+                }
+                final List<Callable<List<CachedLogEntry>>> pages = new ArrayList<>();
+                for (int i = 0; i < BACKFILL_PAGES_IN_PARALLEL && upperRevision > lastKnownRevision; i++) {
+                    final long lowerRevision = Math.max(lastKnownRevision + 1, upperRevision - this.minCount + 1);
+                    pages.add(this.createPageLoader(mgr, repoCache, upperRevision, lowerRevision));
+                    upperRevision = lowerRevision - 1;
+                }
+                for (final Future<List<CachedLogEntry>> page : executor.invokeAll(pages)) {
+                    newEntries.addAll(page.get());
+                }
+            }
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (final ExecutionException e) {
+            Logger.warn("problem while loading older svn log entries", e.getCause());
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates a task that loads the entries in the given revision range, ordered from newest to oldest.
+     * Every task uses its own repository session, as the sessions must not be shared between threads.
+     */
+    private Callable<List<CachedLogEntry>> createPageLoader(
+            final SVNClientManager mgr,
+            final RepoDataCache repoCache,
+            final long upperRevision,
+            final long lowerRevision) {
+        return new Callable<List<CachedLogEntry>>() {
+            @Override
+            public List<CachedLogEntry> call() throws SVNException {
+                final List<CachedLogEntry> ret = new ArrayList<>();
+                final SVNRepository repo = mgr.getRepositoryPool().createRepository(
+                        repoCache.getRepo().getAccessUrl(), false);
+                try {
+                    repo.log(
+                            new String[] {repoCache.relPath},
+                            upperRevision,
+                            lowerRevision,
+                            true,
+                            false,
+                            0,
+                            new ISVNLogEntryHandler() {
+                                @Override
+                                public void handleLogEntry(SVNLogEntry logEntry) {
+                                    ret.add(new CachedLogEntry(logEntry));
+                                }
+                            });
+                } finally {
+                    repo.closeSession();
+                }
+                return ret;
+            }
+        };
     }
 
     private int determineCheckoutPrefix(SVNClientManager mgr, File workingCopyRoot, SVNURL rootUrl)
@@ -217,46 +461,12 @@ public class CachedLog {
         return i;
     }
 
-    private void readCacheFromFile() throws IOException, ClassNotFoundException {
-        final File file = this.getCacheFilePath().toFile();
-        if (!file.exists()) {
-            return;
+    private void deleteLegacyCacheFile(final IPath stateLocation) {
+        //the log cache used to be stored as a single serialized file that was rewritten on every change
+        final File legacyFile = stateLocation.append(LEGACY_CACHE_FILE).toFile();
+        if (legacyFile.exists() && !legacyFile.delete()) {
+            Logger.warn("could not delete old svn log cache " + legacyFile, null);
         }
-        try (ObjectInputStream ois =
-                new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
-            while (true) {
-                String key;
-                try {
-                    key = ois.readUTF();
-                } catch (final EOFException ex) {
-                    break;
-                }
-                final List<CachedLogEntry> value = (List<CachedLogEntry>) ois.readObject();
-                this.entriesPerWcRoot.put(key, value);
-            }
-        }
-    }
-
-    private void storeCacheToFile() throws IOException {
-        final IPath file = this.getCacheFilePath();
-        try (ObjectOutputStream oos =
-                new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile())))) {
-            int entryCount = 0;
-            for (final Entry<String, List<CachedLogEntry>> e : this.entriesPerWcRoot.entrySet()) {
-                oos.writeUTF(e.getKey());
-                oos.writeObject(e.getValue());
-                entryCount++;
-                if (entryCount > this.maxCount) {
-                    break;
-                }
-            }
-        }
-    }
-
-    private IPath getCacheFilePath() {
-        final Bundle bundle = FrameworkUtil.getBundle(this.getClass());
-        final IPath dir = Platform.getStateLocation(bundle);
-        return dir.append("svnlog.cache");
     }
 
 }
\ No newline at end of file
@@ -1,62 +1,74 @@
 package de.setsoftware.reviewtool.changesources.svn;
 
-import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.SortedMap;
-import java.util.TreeMap;
 
 import org.tmatesoft.svn.core.SVNLogEntry;
 import org.tmatesoft.svn.core.SVNLogEntryPath;
 
 /**
- * Stores all relevant data from a log entry.
+ * Stores all relevant data from a log entry. The data itself is contained in a {@link CachedLogEntryTable},
+ * this object is only a view on it.
  */
-public class CachedLogEntry implements Serializable {
+public class CachedLogEntry {
 
-    private static final long serialVersionUID = 4057821677135067022L;
-
-    private final long revision;
-    private final String message;
-    private final String author;
-    private final Date date;
-    private final SortedMap<String, CachedLogEntryPath> paths;
+    private final CachedLogEntryTable.Snapshot table;
+    private final int index;
+    private SortedMap<String, CachedLogEntryPath> paths;
 
     public CachedLogEntry(SVNLogEntry logEntry) {
-        this.revision = logEntry.getRevision();
-        this.message = logEntry.getMessage();
-        this.author = logEntry.getAuthor();
-        this.date = logEntry.getDate();
-
-        this.paths = new TreeMap<>();
-        for (final Entry<String, SVNLogEntryPath> e : logEntry.getChangedPaths().entrySet()) {
-            this.paths.put(e.getKey(), new CachedLogEntryPath(e.getValue(), this.revision - 1));
+        this(createSingleEntryTable(logEntry), 0);
+    }
+
+    /**
+     * Constructor for a view on an entry of a {@link CachedLogEntryTable}.
+     */
+    CachedLogEntry(final CachedLogEntryTable.Snapshot table, final int index) {
+        this.table = table;
+        this.index = index;
+    }
+
+    private static CachedLogEntryTable.Snapshot createSingleEntryTable(final SVNLogEntry logEntry) {
+        final List<CachedLogEntryPath> paths = new ArrayList<>();
+        for (final SVNLogEntryPath path : logEntry.getChangedPaths().values()) {
+            paths.add(new CachedLogEntryPath(path, logEntry.getRevision() - 1));
         }
+        final CachedLogEntryTable table = new CachedLogEntryTable();
+        table.add(logEntry.getRevision(), logEntry.getMessage(), logEntry.getAuthor(), logEntry.getDate(), paths);
+        return table.snapshot();
     }
 
     public String getMessage() {
-        return this.message;
+        return this.table.getMessage(this.index);
     }
 
     public long getRevision() {
-        return this.revision;
+        return this.table.getRevision(this.index);
     }
 
     public Date getDate() {
-        return this.date;
+        return this.table.getDate(this.index);
     }
 
     public String getAuthor() {
-        return this.author;
+        return this.table.getAuthor(this.index);
     }
 
+    /**
+     * Returns the changed paths of this entry. The map is created from the table on first access.
+     */
     public Map<String, CachedLogEntryPath> getChangedPaths() {
+        if (this.paths == null) {
+            this.paths = this.table.getChangedPaths(this.index);
+        }
         return this.paths;
     }
 
     @Override
     public String toString() {
-        return Long.toString(this.revision);
+        return Long.toString(this.getRevision());
     }
 }
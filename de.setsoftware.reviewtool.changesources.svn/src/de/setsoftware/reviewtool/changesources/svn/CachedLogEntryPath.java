@@ -1,7 +1,6 @@
 package de.setsoftware.reviewtool.changesources.svn;
 
 import java.io.File;
-import java.io.Serializable;
 
 import org.tmatesoft.svn.core.SVNLogEntryPath;
 import org.tmatesoft.svn.core.SVNNodeKind;
@@ -12,9 +11,7 @@ import org.tmatesoft.svn.core.wc.SVNStatusType;
 /**
  * Stores all relevant data from a {@link SVNLogEntryPath} or a {@link SVNStatus}.
  */
-public class CachedLogEntryPath implements Serializable {
-
-    private static final long serialVersionUID = -7052753449952234943L;
+public class CachedLogEntryPath {
 
     private final String path;
     private final File localPath;
@@ -36,6 +33,23 @@ public class CachedLogEntryPath implements Serializable {
         this.kind = mapStatusKind(value.getKind());
     }
 
+    /**
+     * Constructor used when restoring a path from the persistent log cache.
+     */
+    CachedLogEntryPath(
+            final String path,
+            final String copyPath,
+            final long prevRevision,
+            final char type,
+            final char kind) {
+        this.path = path;
+        this.localPath = null;
+        this.copyPath = copyPath;
+        this.prevRevision = prevRevision;
+        this.type = type;
+        this.kind = kind;
+    }
+
     private static char mapStatusKind(final SVNNodeKind nodeKind) {
         if (nodeKind.equals(SVNNodeKind.FILE)) {
             return 'F';
@@ -96,6 +110,14 @@ public class CachedLogEntryPath implements Serializable {
         return this.prevRevision;
     }
 
+    char getType() {
+        return this.type;
+    }
+
+    char getKind() {
+        return this.kind;
+    }
+
     public boolean isFile() {
         return this.kind == 'F';
     }
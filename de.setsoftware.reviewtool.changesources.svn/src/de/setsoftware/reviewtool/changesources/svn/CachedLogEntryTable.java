@@ -0,0 +1,230 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Compact columnar storage for log entries. Instead of an object graph per entry, the data of all entries is stored
+ * in primitive arrays: revisions, dates, per changed path the ids of the path strings and a bitfield for type and
+ * kind. Path and author strings are stored only once in a dictionary, no matter how many entries contain them.
+ * A {@link CachedLogEntry} is only a lightweight view on an entry of the table.
+ *
+ * <p>Entries can only be appended. Readers access the table via {@link Snapshot}s that contain the entries
+ * appended until the snapshot was taken. As existing data is never changed, snapshots can be read without
+ * synchronization while further entries are appended to the table.
+ */
+final class CachedLogEntryTable {
+
+    /**
+     * An immutable view on the entries that were contained in the table when the snapshot was taken.
+     */
+    static final class Snapshot {
+
+        private final int size;
+        private final String[] strings;
+        private final long[] revisions;
+        private final long[] dates;
+        private final String[] messages;
+        private final int[] authors;
+        private final int[] pathStarts;
+        private final int[] paths;
+        private final int[] copyPaths;
+        private final long[] ancestorRevisions;
+        private final byte[] pathFlags;
+
+        private Snapshot(final CachedLogEntryTable table) {
+            this.size = table.size;
+            this.strings = table.strings;
+            this.revisions = table.revisions;
+            this.dates = table.dates;
+            this.messages = table.messages;
+            this.authors = table.authors;
+            this.pathStarts = table.pathStarts;
+            this.paths = table.paths;
+            this.copyPaths = table.copyPaths;
+            this.ancestorRevisions = table.ancestorRevisions;
+            this.pathFlags = table.pathFlags;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * Returns a view on the entry with the given index.
+         */
+        public CachedLogEntry get(final int index) {
+            assert index < this.size;
+            return new CachedLogEntry(this, index);
+        }
+
+        long getRevision(final int index) {
+            return this.revisions[index];
+        }
+
+        String getMessage(final int index) {
+            return this.messages[index];
+        }
+
+        String getAuthor(final int index) {
+            return this.authors[index] == NONE ? null : this.strings[this.authors[index]];
+        }
+
+        Date getDate(final int index) {
+            return this.dates[index] == NO_DATE ? null : new Date(this.dates[index]);
+        }
+
+        SortedMap<String, CachedLogEntryPath> getChangedPaths(final int index) {
+            final SortedMap<String, CachedLogEntryPath> ret = new TreeMap<>();
+            for (int i = this.pathStarts[index]; i < this.pathStarts[index + 1]; i++) {
+                final String path = this.strings[this.paths[i]];
+                ret.put(path, new CachedLogEntryPath(
+                        path,
+                        this.copyPaths[i] == NONE ? null : this.strings[this.copyPaths[i]],
+                        this.ancestorRevisions[i],
+                        TYPES.charAt(this.pathFlags[i] & TYPE_MASK),
+                        KINDS.charAt(this.pathFlags[i] >> KIND_SHIFT)));
+            }
+            return ret;
+        }
+
+        /**
+         * Returns the index of the entry with the given revision, or a negative number if there is none.
+         * The entries have to be in ascending order of their revisions.
+         */
+        public int indexOf(final long revision) {
+            return Arrays.binarySearch(this.revisions, 0, this.size, revision);
+        }
+
+        /**
+         * Returns the entries in reverse order, i.e. from newest to oldest if they were appended in ascending order.
+         */
+        public List<CachedLogEntry> reversed() {
+            return new AbstractList<CachedLogEntry>() {
+                @Override
+                public CachedLogEntry get(final int index) {
+                    return Snapshot.this.get(Snapshot.this.size - 1 - index);
+                }
+
+                @Override
+                public int size() {
+                    return Snapshot.this.size;
+                }
+            };
+        }
+    }
+
+    private static final int NONE = -1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final String TYPES = " ADMR";
+    private static final String KINDS = " FD";
+    private static final int TYPE_MASK = 0x7;
+    private static final int KIND_SHIFT = 3;
+
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private String[] strings = new String[16];
+    private int stringCount;
+
+    private int size;
+    private long[] revisions = new long[16];
+    private long[] dates = new long[16];
+    private String[] messages = new String[16];
+    private int[] authors = new int[16];
+    private int[] pathStarts = new int[17];
+
+    private int pathCount;
+    private int[] paths = new int[16];
+    private int[] copyPaths = new int[16];
+    private long[] ancestorRevisions = new long[16];
+    private byte[] pathFlags = new byte[16];
+
+    /**
+     * Appends an entry with the given data.
+     */
+    public void add(
+            final long revision,
+            final String message,
+            final String author,
+            final Date date,
+            final Collection<CachedLogEntryPath> changedPaths) {
+
+        if (this.size + 1 == this.revisions.length) {
+            final int newLength = 2 * this.revisions.length;
+            this.revisions = Arrays.copyOf(this.revisions, newLength);
+            this.dates = Arrays.copyOf(this.dates, newLength);
+            this.messages = Arrays.copyOf(this.messages, newLength);
+            this.authors = Arrays.copyOf(this.authors, newLength);
+            this.pathStarts = Arrays.copyOf(this.pathStarts, newLength + 1);
+        }
+        if (this.pathCount + changedPaths.size() > this.paths.length) {
+            final int newLength = Math.max(2 * this.paths.length, this.pathCount + changedPaths.size());
+            this.paths = Arrays.copyOf(this.paths, newLength);
+            this.copyPaths = Arrays.copyOf(this.copyPaths, newLength);
+            this.ancestorRevisions = Arrays.copyOf(this.ancestorRevisions, newLength);
+            this.pathFlags = Arrays.copyOf(this.pathFlags, newLength);
+        }
+
+        for (final CachedLogEntryPath path : changedPaths) {
+            this.paths[this.pathCount] = this.intern(path.getPath());
+            this.copyPaths[this.pathCount] = this.intern(path.getCopyPath());
+            this.ancestorRevisions[this.pathCount] = path.getAncestorRevision();
+            this.pathFlags[this.pathCount] = (byte) (encode(TYPES, path.getType())
+                    | (encode(KINDS, path.getKind()) << KIND_SHIFT));
+            this.pathCount++;
+        }
+        this.revisions[this.size] = revision;
+        this.dates[this.size] = date == null ? NO_DATE : date.getTime();
+        this.messages[this.size] = message;
+        this.authors[this.size] = this.intern(author);
+        this.pathStarts[this.size + 1] = this.pathCount;
+        this.size++;
+    }
+
+    /**
+     * Appends a copy of the given entry.
+     */
+    public void add(final CachedLogEntry entry) {
+        this.add(
+                entry.getRevision(),
+                entry.getMessage(),
+                entry.getAuthor(),
+                entry.getDate(),
+                entry.getChangedPaths().values());
+    }
+
+    private static int encode(final String codes, final char value) {
+        final int code = codes.indexOf(value);
+        return code < 0 ? 0 : code;
+    }
+
+    private int intern(final String s) {
+        if (s == null) {
+            return NONE;
+        }
+        final Integer existing = this.stringIds.get(s);
+        if (existing != null) {
+            return existing;
+        }
+        if (this.stringCount == this.strings.length) {
+            this.strings = Arrays.copyOf(this.strings, 2 * this.stringCount);
+        }
+        this.strings[this.stringCount] = s;
+        this.stringIds.put(s, this.stringCount);
+        return this.stringCount++;
+    }
+
+    /**
+     * Returns an immutable view on the current entries of the table.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+}
@@ -0,0 +1,315 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A single file of the persistent log cache. A segment contains a contiguous range of log entries of one
+ * working copy root, ordered from newest to oldest. Segments are never changed after they have been written;
+ * new entries are stored in new segments and old segments are replaced as a whole when compacting.
+ *
+ * <p>The file format is a header (magic number, format version, working copy root, revision range and entry
+ * count) followed by a sequence of typed and length-prefixed sections. Readers skip sections they do not know,
+ * so that sections can be added without changing the format version. Besides the entries, a segment contains
+ * the {@link TicketKeyIndex} for its entries.
+ */
+final class CachedLogSegment {
+
+    static final String FILE_EXTENSION = ".seg";
+
+    private static final int MAGIC = 0x43524C47;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int SECTION_ENTRIES = 1;
+    private static final int SECTION_KEY_INDEX = 2;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final File file;
+    private final String workingCopyRoot;
+    private final long minRevision;
+    private final long maxRevision;
+    private final int entryCount;
+    private final int sectionsStart;
+
+    private CachedLogSegment(
+            final File file,
+            final String workingCopyRoot,
+            final long minRevision,
+            final long maxRevision,
+            final int entryCount,
+            final int sectionsStart) {
+        this.file = file;
+        this.workingCopyRoot = workingCopyRoot;
+        this.minRevision = minRevision;
+        this.maxRevision = maxRevision;
+        this.entryCount = entryCount;
+        this.sectionsStart = sectionsStart;
+    }
+
+    /**
+     * Reads the header of the given segment file. The entries themselves are only read on demand.
+     * @throws IOException if the file could not be read or is not a valid segment.
+     */
+    public static CachedLogSegment open(final File file) throws IOException {
+        final ByteBuffer buffer = map(file);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("not a log cache segment: " + file);
+            }
+            final int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("unsupported log cache segment version " + version + ": " + file);
+            }
+            final String workingCopyRoot = readString(buffer);
+            final long minRevision = buffer.getLong();
+            final long maxRevision = buffer.getLong();
+            final int entryCount = buffer.getInt();
+            return new CachedLogSegment(
+                    file, workingCopyRoot, minRevision, maxRevision, entryCount, buffer.position());
+        } catch (final BufferUnderflowException e) {
+            throw new IOException("truncated log cache segment: " + file, e);
+        }
+    }
+
+    /**
+     * Writes the given entries to a new segment file in the given directory.
+     * The file is written under a temporary name first and moved into place afterwards, so that readers
+     * never see partially written segments.
+     * @param entries The entries, ordered from newest to oldest. Must not be empty.
+     */
+    public static CachedLogSegment write(
+            final File directory,
+            final String workingCopyRoot,
+            final List<CachedLogEntry> entries) throws IOException {
+
+        assert !entries.isEmpty();
+        final long maxRevision = entries.get(0).getRevision();
+        final long minRevision = entries.get(entries.size() - 1).getRevision();
+
+        final File target = new File(directory, String.format("%08x_%d_%d%s",
+                workingCopyRoot.hashCode(), maxRevision, minRevision, FILE_EXTENSION));
+        final File tmp = new File(directory, target.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, workingCopyRoot);
+            out.writeLong(minRevision);
+            out.writeLong(maxRevision);
+            out.writeInt(entries.size());
+            writeSection(out, SECTION_ENTRIES, encodeEntries(entries));
+            writeSection(out, SECTION_KEY_INDEX, encodeKeyIndex(entries));
+        }
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return open(target);
+    }
+
+    /**
+     * Reads all entries of this segment, ordered from newest to oldest.
+     * @throws IOException if the file could not be read or is corrupt.
+     */
+    public List<CachedLogEntry> readEntries() throws IOException {
+        final ByteBuffer buffer = map(this.file);
+        try {
+            if (this.seekSection(buffer, SECTION_ENTRIES)) {
+                return this.decodeEntries(buffer);
+            }
+        } catch (final BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("corrupt log cache segment: " + this.file, e);
+        }
+        throw new IOException("log cache segment without entries: " + this.file);
+    }
+
+    /**
+     * Reads the ticket key index of this segment and adds it to the given index.
+     * Segments written before the index was introduced do not contain it, for these the keys
+     * are extracted from the entries' messages.
+     * @throws IOException if the file could not be read or is corrupt.
+     */
+    public void readKeyIndex(final TicketKeyIndex target) throws IOException {
+        final ByteBuffer buffer = map(this.file);
+        try {
+            if (!this.seekSection(buffer, SECTION_KEY_INDEX)) {
+                for (final CachedLogEntry entry : this.readEntries()) {
+                    target.add(entry);
+                }
+                return;
+            }
+            final int keyCount = buffer.getInt();
+            final Map<String, long[]> revisionsPerKey = new HashMap<>();
+            for (int i = 0; i < keyCount; i++) {
+                final String key = readString(buffer);
+                final long[] revisions = new long[buffer.getInt()];
+                for (int j = 0; j < revisions.length; j++) {
+                    revisions[j] = buffer.getLong();
+                }
+                revisionsPerKey.put(key, revisions);
+            }
+            target.addAll(revisionsPerKey);
+        } catch (final BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("corrupt log cache segment: " + this.file, e);
+        }
+    }
+
+    /**
+     * Moves the buffer to the start of the content of the section with the given type.
+     * Returns false if the segment does not contain such a section.
+     */
+    private boolean seekSection(final ByteBuffer buffer, final int sectionType) {
+        buffer.position(this.sectionsStart);
+        while (buffer.hasRemaining()) {
+            final int type = buffer.getInt();
+            final int length = buffer.getInt();
+            if (type == sectionType) {
+                return true;
+            }
+            buffer.position(buffer.position() + length);
+        }
+        return false;
+    }
+
+    private static byte[] encodeEntries(final List<CachedLogEntry> entries) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        for (final CachedLogEntry entry : entries) {
+            out.writeLong(entry.getRevision());
+            writeString(out, entry.getMessage());
+            writeString(out, entry.getAuthor());
+            out.writeLong(entry.getDate() == null ? NO_DATE : entry.getDate().getTime());
+            out.writeInt(entry.getChangedPaths().size());
+            for (final CachedLogEntryPath path : entry.getChangedPaths().values()) {
+                writeString(out, path.getPath());
+                writeString(out, path.getCopyPath());
+                out.writeLong(path.getAncestorRevision());
+                out.writeChar(path.getType());
+                out.writeChar(path.getKind());
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeKeyIndex(final List<CachedLogEntry> entries) throws IOException {
+        final TicketKeyIndex index = new TicketKeyIndex();
+        for (final CachedLogEntry entry : entries) {
+            index.add(entry);
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(index.getRevisionsPerKey().size());
+        for (final Entry<String, long[]> e : index.getRevisionsPerKey().entrySet()) {
+            writeString(out, e.getKey());
+            out.writeInt(e.getValue().length);
+            for (final long revision : e.getValue()) {
+                out.writeLong(revision);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private List<CachedLogEntry> decodeEntries(final ByteBuffer buffer) {
+        final CachedLogEntryTable table = new CachedLogEntryTable();
+        final List<CachedLogEntryPath> paths = new ArrayList<>();
+        for (int i = 0; i < this.entryCount; i++) {
+            final long revision = buffer.getLong();
+            final String message = readString(buffer);
+            final String author = readString(buffer);
+            final long date = buffer.getLong();
+            final int pathCount = buffer.getInt();
+            paths.clear();
+            for (int j = 0; j < pathCount; j++) {
+                final String path = readString(buffer);
+                final String copyPath = readString(buffer);
+                final long ancestorRevision = buffer.getLong();
+                final char type = buffer.getChar();
+                final char kind = buffer.getChar();
+                paths.add(new CachedLogEntryPath(path, copyPath, ancestorRevision, type, kind));
+            }
+            table.add(revision, message, author, date == NO_DATE ? null : new Date(date), paths);
+        }
+        final CachedLogEntryTable.Snapshot entries = table.snapshot();
+        final List<CachedLogEntry> ret = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            ret.add(entries.get(i));
+        }
+        return ret;
+    }
+
+    private static void writeSection(final DataOutputStream out, final int type, final byte[] content)
+        throws IOException {
+        out.writeInt(type);
+        out.writeInt(content.length);
+        out.write(content);
+    }
+
+    private static void writeString(final DataOutputStream out, final String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static MappedByteBuffer map(final File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+    public String getWorkingCopyRoot() {
+        return this.workingCopyRoot;
+    }
+
+    public long getMinRevision() {
+        return this.minRevision;
+    }
+
+    public long getMaxRevision() {
+        return this.maxRevision;
+    }
+
+    public int getEntryCount() {
+        return this.entryCount;
+    }
+
+    @Override
+    public String toString() {
+        return this.file.getName();
+    }
+}
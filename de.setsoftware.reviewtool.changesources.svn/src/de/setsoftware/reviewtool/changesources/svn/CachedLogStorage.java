@@ -0,0 +1,241 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobFunction;
+import org.eclipse.core.runtime.jobs.Job;
+
+import de.setsoftware.reviewtool.base.Logger;
+
+/**
+ * Persistent storage for the cached log entries. The entries of every working copy root are stored in a
+ * number of append-only {@link CachedLogSegment}s, so that storing new entries only costs time proportional
+ * to the number of new entries. When too many segments have accumulated for a working copy root, they
+ * are merged into a single segment in the background.
+ */
+final class CachedLogStorage {
+
+    private static final int MAX_SEGMENTS_PER_WC_ROOT = 8;
+
+    private final File directory;
+    private final Map<String, List<CachedLogSegment>> segmentsPerWcRoot;
+
+    /**
+     * Creates the storage for the given directory and reads the headers of all segments contained in it.
+     * Segments that cannot be read are deleted.
+     */
+    public CachedLogStorage(final File directory) {
+        this.directory = directory;
+        this.segmentsPerWcRoot = new HashMap<>();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Logger.warn("could not create svn log cache directory " + directory, null);
+            return;
+        }
+
+        final File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(final File file) {
+                return file.getName().endsWith(CachedLogSegment.FILE_EXTENSION);
+            }
+        });
+        if (files == null) {
+            return;
+        }
+        for (final File file : files) {
+            try {
+                final CachedLogSegment segment = CachedLogSegment.open(file);
+                this.getSegments(segment.getWorkingCopyRoot()).add(segment);
+            } catch (final IOException e) {
+                Logger.warn("discarding unreadable svn log cache segment", e);
+                deleteFile(file);
+            }
+        }
+        for (final List<CachedLogSegment> segments : this.segmentsPerWcRoot.values()) {
+            sortNewestFirst(segments);
+        }
+    }
+
+    private List<CachedLogSegment> getSegments(final String workingCopyRoot) {
+        List<CachedLogSegment> segments = this.segmentsPerWcRoot.get(workingCopyRoot);
+        if (segments == null) {
+            segments = new ArrayList<>();
+            this.segmentsPerWcRoot.put(workingCopyRoot, segments);
+        }
+        return segments;
+    }
+
+    /**
+     * Reads all stored entries for the given working copy root, ordered from newest to oldest.
+     */
+    public synchronized List<CachedLogEntry> load(final String workingCopyRoot) {
+        final List<CachedLogEntry> ret = new ArrayList<>();
+        for (final CachedLogSegment segment : new ArrayList<>(this.getSegments(workingCopyRoot))) {
+            try {
+                appendOlderEntries(ret, segment.readEntries());
+            } catch (final IOException e) {
+                Logger.warn("discarding unreadable svn log cache segment", e);
+                this.getSegments(workingCopyRoot).remove(segment);
+                deleteFile(segment.getFile());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Reads the ticket key index for all stored entries of the given working copy root.
+     */
+    public synchronized TicketKeyIndex loadKeyIndex(final String workingCopyRoot) {
+        final TicketKeyIndex ret = new TicketKeyIndex();
+        for (final CachedLogSegment segment : this.getSegments(workingCopyRoot)) {
+            try {
+                segment.readKeyIndex(ret);
+            } catch (final IOException e) {
+                //corrupt segments are discarded when the entries are loaded
+                Logger.warn("could not read key index from svn log cache segment", e);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Appends the entries of a segment to the result. Segments can overlap when a compaction was interrupted,
+     * therefore entries that are not older than the last entry in the result are skipped.
+     */
+    private static void appendOlderEntries(final List<CachedLogEntry> result, final List<CachedLogEntry> entries) {
+        for (final CachedLogEntry entry : entries) {
+            if (result.isEmpty() || entry.getRevision() < result.get(result.size() - 1).getRevision()) {
+                result.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Stores new entries for the given working copy root. The entries have to be newer than all entries
+     * stored so far.
+     * @param newEntries The new entries, ordered from newest to oldest.
+     * @param maxEntries The maximal number of entries to keep for the working copy root. Older entries are
+     *      dropped during the next compaction.
+     */
+    public synchronized void append(
+            final String workingCopyRoot,
+            final List<CachedLogEntry> newEntries,
+            final int maxEntries) throws IOException {
+
+        if (newEntries.isEmpty()) {
+            return;
+        }
+        final List<CachedLogSegment> segments = this.getSegments(workingCopyRoot);
+        segments.add(0, CachedLogSegment.write(this.directory, workingCopyRoot, newEntries));
+        if (segments.size() > MAX_SEGMENTS_PER_WC_ROOT || this.countEntries(segments) > maxEntries) {
+            this.scheduleCompaction(workingCopyRoot, maxEntries);
+        }
+    }
+
+    /**
+     * Replaces all stored entries for the given working copy root with the given entries. This is needed when
+     * the new entries are not contiguous with the stored ones, as a gap between them would never be filled.
+     * @param newEntries The new entries, ordered from newest to oldest.
+     * @param maxEntries The maximal number of entries to keep for the working copy root.
+     */
+    public synchronized void replace(
+            final String workingCopyRoot,
+            final List<CachedLogEntry> newEntries,
+            final int maxEntries) throws IOException {
+
+        //the new segment is written first, so that the old entries are kept if that fails. They are still
+        //  contiguous then, and the new entries are loaded again with the next refresh
+        final CachedLogSegment newSegment = newEntries.isEmpty() ? null : CachedLogSegment.write(
+                this.directory,
+                workingCopyRoot,
+                newEntries.subList(0, Math.min(newEntries.size(), maxEntries)));
+        final List<CachedLogSegment> segments = this.getSegments(workingCopyRoot);
+        for (final CachedLogSegment old : segments) {
+            deleteFile(old.getFile());
+        }
+        segments.clear();
+        if (newSegment != null) {
+            segments.add(newSegment);
+        }
+    }
+
+    private int countEntries(final List<CachedLogSegment> segments) {
+        int count = 0;
+        for (final CachedLogSegment segment : segments) {
+            count += segment.getEntryCount();
+        }
+        return count;
+    }
+
+    private void scheduleCompaction(final String workingCopyRoot, final int maxEntries) {
+        final Job job = Job.create("Compacting SVN log cache", new IJobFunction() {
+            @Override
+            public IStatus run(final IProgressMonitor monitor) {
+                try {
+                    CachedLogStorage.this.compact(workingCopyRoot, maxEntries);
+                } catch (final IOException e) {
+                    Logger.error("problem while compacting svn log cache", e);
+                }
+                return Status.OK_STATUS;
+            }
+        });
+        job.setSystem(true);
+        job.schedule();
+    }
+
+    /**
+     * Merges all segments of the given working copy root into a single segment containing at most
+     * the given number of entries.
+     */
+    synchronized void compact(final String workingCopyRoot, final int maxEntries) throws IOException {
+        final List<CachedLogSegment> segments = this.getSegments(workingCopyRoot);
+        if (segments.size() <= 1 && this.countEntries(segments) <= maxEntries) {
+            return;
+        }
+
+        final List<CachedLogEntry> entries = this.load(workingCopyRoot);
+        final List<CachedLogSegment> oldSegments = new ArrayList<>(segments);
+        segments.clear();
+        if (!entries.isEmpty()) {
+            segments.add(CachedLogSegment.write(
+                    this.directory,
+                    workingCopyRoot,
+                    entries.subList(0, Math.min(entries.size(), maxEntries))));
+        }
+        for (final CachedLogSegment old : oldSegments) {
+            if (!segments.isEmpty() && old.getFile().equals(segments.get(0).getFile())) {
+                continue;
+            }
+            deleteFile(old.getFile());
+        }
+    }
+
+    private static void sortNewestFirst(final List<CachedLogSegment> segments) {
+        Collections.sort(segments, new Comparator<CachedLogSegment>() {
+            @Override
+            public int compare(final CachedLogSegment o1, final CachedLogSegment o2) {
+                final int cmp = Long.compare(o2.getMaxRevision(), o1.getMaxRevision());
+                return cmp != 0 ? cmp : Integer.compare(o2.getEntryCount(), o1.getEntryCount());
+            }
+        });
+    }
+
+    private static void deleteFile(final File file) {
+        //a segment that is still memory-mapped cannot be deleted on some platforms. It is deleted on exit
+        //  instead, overlapping entries are skipped until then
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+}
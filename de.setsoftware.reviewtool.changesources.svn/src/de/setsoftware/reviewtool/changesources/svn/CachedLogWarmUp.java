@@ -0,0 +1,107 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobFunction;
+import org.eclipse.core.runtime.jobs.Job;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+import de.setsoftware.reviewtool.base.Logger;
+
+/**
+ * Keeps the {@link CachedLog} current in the background, so that starting a review does not have to wait
+ * for the new log entries to be fetched. The polling interval adapts to the activity in the repositories:
+ * It is reset to the minimum whenever new entries have been found and doubled (up to a maximum) otherwise.
+ * When mirroring is enabled, the {@link SvnMirror}s are synchronized before the log is refreshed.
+ */
+final class CachedLogWarmUp {
+
+    private static final long MIN_INTERVAL_MS = 2 * 60 * 1000L;
+    private static final long MAX_INTERVAL_MS = 30 * 60 * 1000L;
+
+    private static final CachedLogWarmUp INSTANCE = new CachedLogWarmUp();
+
+    private final Job job;
+    private volatile Map<File, SVNClientManager> mgrPerWcRoot;
+    private volatile long interval;
+
+    private CachedLogWarmUp() {
+        this.mgrPerWcRoot = Collections.emptyMap();
+        this.interval = MIN_INTERVAL_MS;
+        this.job = Job.create("Refreshing SVN log cache", new IJobFunction() {
+            @Override
+            public IStatus run(final IProgressMonitor monitor) {
+                return CachedLogWarmUp.this.refreshAll(monitor);
+            }
+        });
+        this.job.setSystem(true);
+    }
+
+    public static CachedLogWarmUp getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets the working copy roots that shall be kept current, replacing the ones given before, and
+     * starts refreshing them in the background.
+     * @param mgrPerWcRoot The working copy roots and the {@link SVNClientManager} to use for each of them.
+     */
+    public void start(final Map<File, SVNClientManager> mgrPerWcRoot) {
+        this.mgrPerWcRoot = Collections.unmodifiableMap(new LinkedHashMap<>(mgrPerWcRoot));
+        this.interval = MIN_INTERVAL_MS;
+        this.job.cancel();
+        this.job.schedule();
+    }
+
+    private IStatus refreshAll(final IProgressMonitor monitor) {
+        if (SvnMirror.getInstance().isEnabled()) {
+            this.synchronizeMirrors(monitor);
+        }
+        boolean foundNewEntries = false;
+        for (final Entry<File, SVNClientManager> e : this.mgrPerWcRoot.entrySet()) {
+            if (monitor.isCanceled()) {
+                return Status.CANCEL_STATUS;
+            }
+            try {
+                foundNewEntries |= CachedLog.getInstance().refresh(e.getValue(), e.getKey()) > 0;
+            } catch (final SVNException | RuntimeException ex) {
+                //the server might be unreachable temporarily. Errors are reported when a review is started
+                Logger.debug("background refresh of svn log for " + e.getKey() + " failed: " + ex);
+            }
+        }
+        this.interval = foundNewEntries ? MIN_INTERVAL_MS : Math.min(2 * this.interval, MAX_INTERVAL_MS);
+        this.job.schedule(this.interval);
+        return Status.OK_STATUS;
+    }
+
+    /**
+     * Brings the local mirrors of all repositories up to date before the log is refreshed from them.
+     */
+    private void synchronizeMirrors(final IProgressMonitor monitor) {
+        final Set<String> synchronizedRepos = new HashSet<>();
+        for (final Entry<File, SVNClientManager> e : this.mgrPerWcRoot.entrySet()) {
+            if (monitor.isCanceled()) {
+                return;
+            }
+            try {
+                final SvnRepo repo = CachedLog.getInstance().mapWorkingCopyRootToRepository(e.getValue(), e.getKey());
+                if (repo != null && synchronizedRepos.add(repo.getId())) {
+                    SvnMirror.getInstance().synchronize(repo);
+                }
+            } catch (final SVNException | RuntimeException ex) {
+                Logger.debug("synchronizing svn mirror for " + e.getKey() + " failed: " + ex);
+            }
+        }
+    }
+
+}
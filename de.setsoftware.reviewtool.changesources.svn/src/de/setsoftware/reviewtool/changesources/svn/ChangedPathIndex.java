@@ -0,0 +1,94 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Index from the paths changed in log entries to the revisions of these log entries. Both the changed paths and
+ * the paths they were copied from are indexed. It is used to find the log entries that touched the files of
+ * a ticket without having to inspect all log entries.
+ */
+final class ChangedPathIndex {
+
+    /**
+     * A growable array of revisions in ascending order.
+     */
+    private static final class RevisionList {
+
+        private long[] revisions = new long[2];
+        private int size;
+
+        public void add(final long revision) {
+            if (this.size > 0 && this.revisions[this.size - 1] == revision) {
+                return;
+            }
+            assert this.size == 0 || this.revisions[this.size - 1] < revision;
+            if (this.size == this.revisions.length) {
+                this.revisions = Arrays.copyOf(this.revisions, 2 * this.size);
+            }
+            this.revisions[this.size++] = revision;
+        }
+
+        public void addNewerRevisions(final long minRevision, final SortedSet<Long> target) {
+            final int index = Arrays.binarySearch(this.revisions, 0, this.size, minRevision);
+            for (int i = index >= 0 ? index + 1 : -index - 1; i < this.size; i++) {
+                target.add(this.revisions[i]);
+            }
+        }
+    }
+
+    private final TreeMap<String, RevisionList> revisionsPerPath = new TreeMap<>();
+
+    /**
+     * Adds the paths of the given log entry to the index.
+     * Entries have to be added in ascending order of their revisions.
+     */
+    public void add(final CachedLogEntry entry) {
+        for (final CachedLogEntryPath path : entry.getChangedPaths().values()) {
+            this.getRevisions(path.getPath()).add(entry.getRevision());
+            if (path.getCopyPath() != null) {
+                this.getRevisions(path.getCopyPath()).add(entry.getRevision());
+            }
+        }
+    }
+
+    private RevisionList getRevisions(final String path) {
+        RevisionList revisions = this.revisionsPerPath.get(path);
+        if (revisions == null) {
+            revisions = new RevisionList();
+            this.revisionsPerPath.put(path, revisions);
+        }
+        return revisions;
+    }
+
+    /**
+     * Returns the revisions that are newer than the given revision and touched one of the given paths,
+     * one of their parent directories or a path below them.
+     */
+    public SortedSet<Long> findRevisionsTouching(final Collection<String> paths, final long minRevision) {
+        final SortedSet<Long> ret = new TreeSet<>();
+        for (final String path : paths) {
+            String current = path;
+            while (true) {
+                final RevisionList revisions = this.revisionsPerPath.get(current);
+                if (revisions != null) {
+                    revisions.addNewerRevisions(minRevision, ret);
+                }
+                final int lastSlash = current.lastIndexOf('/');
+                if (lastSlash <= 0) {
+                    break;
+                }
+                current = current.substring(0, lastSlash);
+            }
+            //'0' is the character following '/', so the sub map contains all paths below the given one
+            for (final RevisionList revisions : this.revisionsPerPath.subMap(path + "/", path + "0").values()) {
+                revisions.addNewerRevisions(minRevision, ret);
+            }
+        }
+        return ret;
+    }
+
+}
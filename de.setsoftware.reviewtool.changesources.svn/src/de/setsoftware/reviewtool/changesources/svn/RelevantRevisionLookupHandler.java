@@ -3,9 +3,11 @@ package de.setsoftware.reviewtool.changesources.svn;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.regex.Pattern;
 
@@ -23,13 +25,13 @@ import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
  * Also determines entries that are relevant to restore the full history of files in matching log entries.
  * These revisions have to be considered for a consistent history as otherwise consolidation of diffs is
  * inaccurate. Revisions that are retrofitted are marked as "invisible" in order to be able to differentiate between
- * "proper" and "technically necessary" revisions.
+ * "proper" and "technically necessary" revisions. They are found by looking up the paths touched by relevant
+ * revisions in the {@link CachedLog}, so that only log entries related to the matching ones have to be processed.
  */
 class RelevantRevisionLookupHandler implements CachedLogLookupHandler {
 
     private final Pattern pattern;
-    private final List<SvnRevision> potentiallyRelevantEntries = new ArrayList<>();
-    private final List<SvnRevision> entriesSinceLastMatching = new ArrayList<>();
+    private final List<SvnRevision> matchingEntries = new ArrayList<>();
     private SvnRepo currentRoot;
 
     public RelevantRevisionLookupHandler(Pattern patternForKey) {
@@ -39,18 +41,13 @@ class RelevantRevisionLookupHandler implements CachedLogLookupHandler {
     @Override
     public void startNewRepo(SvnRepo repo) {
         this.currentRoot = repo;
-        this.entriesSinceLastMatching.clear();
     }
 
     @Override
     public void handleLogEntry(CachedLogEntry logEntry) throws SVNException {
         if (logEntry.getMessage() != null && this.pattern.matcher(logEntry.getMessage()).matches()) {
             assert this.currentRoot != null;
-            this.potentiallyRelevantEntries.add(new SvnRevision(this.currentRoot, logEntry, true));
-            this.potentiallyRelevantEntries.addAll(this.entriesSinceLastMatching);
-            this.entriesSinceLastMatching.clear();
-        } else {
-            this.entriesSinceLastMatching.add(new SvnRevision(this.currentRoot, logEntry, false));
+            this.matchingEntries.add(new SvnRevision(this.currentRoot, logEntry, true));
         }
     }
 
@@ -61,19 +58,44 @@ class RelevantRevisionLookupHandler implements CachedLogLookupHandler {
     public List<ISvnRevision> determineRelevantRevisions(final IMutableFileHistoryGraph historyGraph,
             final IChangeSourceUi ui) {
         final List<ISvnRevision> ret = new ArrayList<>();
-        for (final TreeMap<Long, SvnRevision> revisionsInRepo : this.groupResultsByRepository().values()) {
-            for (final SvnRevision revision : revisionsInRepo.values()) {
+        for (final Entry<SvnRepo, TreeMap<Long, SvnRevision>> e : this.groupResultsByRepository().entrySet()) {
+            final SvnRepo repo = e.getKey();
+            //revisions are processed in ascending order. Invisible revisions can only become relevant by touching
+            //  a path that is already contained in the history graph. As all these paths are related to paths
+            //  touched by a relevant revision, it suffices to add the newer revisions touching the same paths
+            //  whenever a relevant revision is found
+            final TreeMap<Long, SvnRevision> pending = e.getValue();
+            while (!pending.isEmpty()) {
                 if (ui.isCanceled()) {
                     throw new OperationCanceledException();
                 }
+                final SvnRevision revision = pending.pollFirstEntry().getValue();
                 if (processRevision(revision, historyGraph)) {
                     ret.add(revision);
+                    this.addTouchingRevisions(repo, revision, pending);
                 }
             }
         }
         return ret;
     }
 
+    private void addTouchingRevisions(
+            final SvnRepo repo, final SvnRevision revision, final TreeMap<Long, SvnRevision> pending) {
+        final Set<String> paths = new LinkedHashSet<>();
+        for (final Entry<String, CachedLogEntryPath> e : revision.getChangedPaths().entrySet()) {
+            paths.add(e.getKey());
+            if (e.getValue().getCopyPath() != null) {
+                paths.add(e.getValue().getCopyPath());
+            }
+        }
+        for (final CachedLogEntry entry
+                : CachedLog.getInstance().getEntriesTouching(repo, paths, revision.getRevisionNumber())) {
+            if (!pending.containsKey(entry.getRevision())) {
+                pending.put(entry.getRevision(), new SvnRevision(repo, entry, false));
+            }
+        }
+    }
+
     private static IRevision toRevision(final long revision, final IRepository repo) {
         if (revision == Long.MAX_VALUE) {
             return ChangestructureFactory.createLocalRevision(repo);
@@ -129,7 +151,7 @@ class RelevantRevisionLookupHandler implements CachedLogLookupHandler {
 
     private Map<SvnRepo, TreeMap<Long, SvnRevision>> groupResultsByRepository() {
         final Map<SvnRepo, TreeMap<Long, SvnRevision>> result = new LinkedHashMap<>();
-        for (final SvnRevision revision : this.potentiallyRelevantEntries) {
+        for (final SvnRevision revision : this.matchingEntries) {
             TreeMap<Long, SvnRevision> revsForRepo = result.get(revision.getRepository());
             if (revsForRepo == null) {
                 revsForRepo = new TreeMap<>();
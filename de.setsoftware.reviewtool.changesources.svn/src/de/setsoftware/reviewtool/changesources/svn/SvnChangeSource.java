@@ -1,13 +1,11 @@
 package de.setsoftware.reviewtool.changesources.svn;
 
 import java.io.File;
-import java.nio.ByteBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CodingErrorAction;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -16,23 +14,35 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.tmatesoft.svn.core.SVNDepth;
 import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
 import org.tmatesoft.svn.core.internal.wc.DefaultSVNAuthenticationManager;
 import org.tmatesoft.svn.core.wc.ISVNStatusHandler;
 import org.tmatesoft.svn.core.wc.SVNClientManager;
-import org.tmatesoft.svn.core.wc.SVNInfo;
 import org.tmatesoft.svn.core.wc.SVNRevision;
 import org.tmatesoft.svn.core.wc.SVNStatus;
 
+import de.setsoftware.reviewtool.base.Logger;
 import de.setsoftware.reviewtool.base.Pair;
 import de.setsoftware.reviewtool.base.ReviewtoolException;
+import de.setsoftware.reviewtool.base.ScannedText;
 import de.setsoftware.reviewtool.base.ValueWrapper;
 import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmFactory;
+import de.setsoftware.reviewtool.diffalgorithms.DiffResult;
 import de.setsoftware.reviewtool.diffalgorithms.IDiffAlgorithm;
 import de.setsoftware.reviewtool.model.api.IBinaryChange;
 import de.setsoftware.reviewtool.model.api.IChange;
@@ -46,9 +56,13 @@ import de.setsoftware.reviewtool.model.api.IHunk;
 import de.setsoftware.reviewtool.model.api.IMutableFileHistoryEdge;
 import de.setsoftware.reviewtool.model.api.IMutableFileHistoryGraph;
 import de.setsoftware.reviewtool.model.api.IMutableFileHistoryNode;
+import de.setsoftware.reviewtool.model.api.ILocalRevision;
+import de.setsoftware.reviewtool.model.api.IRepoRevision;
 import de.setsoftware.reviewtool.model.api.IRepository;
 import de.setsoftware.reviewtool.model.api.IRevision;
+import de.setsoftware.reviewtool.model.api.IRevisionVisitor;
 import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+import de.setsoftware.reviewtool.model.api.IUnknownRevision;
 import de.setsoftware.reviewtool.model.api.IncompatibleFragmentException;
 import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
 import de.setsoftware.reviewtool.model.changestructure.Hunk;
@@ -62,7 +76,9 @@ public class SvnChangeSource implements IChangeSource {
 
     private final Set<File> workingCopyRoots;
     private final String logMessagePattern;
+    private final boolean patternRequiresKey;
     private final SVNClientManager mgr = SVNClientManager.newInstance();
+    private final Map<File, SVNClientManager> mgrPerWcRoot;
     private final long maxTextDiffThreshold;
 
     public SvnChangeSource(
@@ -72,16 +88,26 @@ public class SvnChangeSource implements IChangeSource {
             String pwd,
             long maxTextDiffThreshold,
             int logCacheMinSize,
-            int logCacheMaxSize) {
-        this.mgr.setAuthenticationManager(new DefaultSVNAuthenticationManager(
-                null, false, user, pwd.toCharArray(), null, null));
+            int logCacheMaxSize,
+            boolean useLocalMirror) {
+        final ISVNAuthenticationManager authManager = new DefaultSVNAuthenticationManager(
+                null, false, user, pwd.toCharArray(), null, null);
+        this.mgr.setAuthenticationManager(authManager);
         this.workingCopyRoots = this.determineWorkingCopyRoots(projectRoots);
+        //SVNClientManager is not thread-safe, so every working copy root gets its own to refresh the logs concurrently
+        this.mgrPerWcRoot = new LinkedHashMap<>();
+        for (final File workingCopyRoot : this.workingCopyRoots) {
+            this.mgrPerWcRoot.put(workingCopyRoot, SVNClientManager.newInstance(null, authManager));
+        }
 
         this.logMessagePattern = logMessagePattern;
         //check that the pattern can be parsed
         this.createPatternForKey("TEST-123");
+        this.patternRequiresKey = this.determineIfPatternRequiresKey();
         this.maxTextDiffThreshold = maxTextDiffThreshold;
         CachedLog.getInstance().setSizeLimits(logCacheMinSize, logCacheMaxSize);
+        SvnMirror.getInstance().configure(useLocalMirror, SVNClientManager.newInstance(null, authManager));
+        CachedLogWarmUp.getInstance().start(this.mgrPerWcRoot);
     }
 
     private Set<File> determineWorkingCopyRoots(List<File> projectRoots) {
@@ -123,6 +149,32 @@ public class SvnChangeSource implements IChangeSource {
                 Pattern.DOTALL);
     }
 
+    /**
+     * Returns true if every log message that matches the pattern for some key contains the key literally.
+     * Only then can the ticket key index be used to find the matching log entries. The check is conservative,
+     * patterns with alternatives, inline flags or groups around the key are regarded as not requiring it.
+     */
+    private boolean determineIfPatternRequiresKey() {
+        final int keyStart = this.logMessagePattern.indexOf(KEY_PLACEHOLDER);
+        if (keyStart < 0 || this.logMessagePattern.contains("|") || this.logMessagePattern.contains("(?")) {
+            return false;
+        }
+        int openGroups = 0;
+        for (int i = 0; i < keyStart; i++) {
+            final char ch = this.logMessagePattern.charAt(i);
+            if (ch == '\\') {
+                i++;
+            } else if (ch == '(' || ch == '[') {
+                openGroups++;
+            } else if (ch == ')' || ch == ']') {
+                openGroups--;
+            }
+        }
+        final String afterKey = this.logMessagePattern.substring(keyStart + KEY_PLACEHOLDER.length());
+        return openGroups == 0
+                && !(afterKey.startsWith("?") || afterKey.startsWith("*") || afterKey.startsWith("{"));
+    }
+
     @Override
     public Collection<SvnRepo> getRepositories() {
         return Collections.unmodifiableCollection(CachedLog.getInstance().getRepositories());
@@ -268,18 +320,15 @@ public class SvnChangeSource implements IChangeSource {
             final IMutableFileHistoryGraph historyGraph,
             final IProgressMonitor ui) throws SVNException {
 
-        final Map<SvnRepo, SortedMap<String, CachedLogEntryPath>> changeMap = new LinkedHashMap<>();
         final List<WorkingCopyRevision> revisions = new ArrayList<>();
-
-        for (final File wcPath : relevantPaths) {
+        for (final Entry<File, Set<Path>> entry : this.groupByWorkingCopyRoot(relevantPaths, ui).entrySet()) {
             if (ui.isCanceled()) {
                 throw new OperationCanceledException();
             }
-            this.checkLocalFile(changeMap, wcPath);
-        }
-
-        for (final Map.Entry<SvnRepo, SortedMap<String, CachedLogEntryPath>> entry : changeMap.entrySet()) {
-            final WorkingCopyRevision wcRevision = new WorkingCopyRevision(entry.getKey(), entry.getValue());
+            final SvnRepo svnRepo =
+                    CachedLog.getInstance().mapWorkingCopyRootToRepository(this.mgr, entry.getKey());
+            final WorkingCopyRevision wcRevision =
+                    new WorkingCopyRevision(svnRepo, this.collectLocalFiles(svnRepo, entry.getValue()));
             if (RelevantRevisionLookupHandler.processRevision(wcRevision, historyGraph)) {
                 revisions.add(wcRevision);
             }
@@ -288,20 +337,68 @@ public class SvnChangeSource implements IChangeSource {
         return revisions;
     }
 
-    private void checkLocalFile(
-            final Map<SvnRepo, SortedMap<String, CachedLogEntryPath>> changeMap,
-            final File wcPath) throws SVNException {
+    /**
+     * Groups the given paths by their working copy root. The roots are determined from the configured
+     * working copy roots if possible, so that the working copy only has to be queried for other paths.
+     */
+    private Map<File, Set<Path>> groupByWorkingCopyRoot(final List<File> paths, final IProgressMonitor ui)
+        throws SVNException {
+
+        final Map<File, Set<Path>> ret = new LinkedHashMap<>();
+        for (final File wcPath : paths) {
+            if (ui.isCanceled()) {
+                throw new OperationCanceledException();
+            }
+            final Path path = wcPath.toPath().toAbsolutePath().normalize();
+            File wcRoot = findDeepestContainingRoot(path, this.workingCopyRoots);
+            if (wcRoot == null) {
+                wcRoot = this.mgr.getWCClient().doInfo(wcPath, SVNRevision.WORKING).getWorkingCopyRoot();
+            }
+            Set<Path> pathsInRoot = ret.get(wcRoot);
+            if (pathsInRoot == null) {
+                pathsInRoot = new LinkedHashSet<>();
+                ret.put(wcRoot, pathsInRoot);
+            }
+            pathsInRoot.add(path);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the deepest of the given working copy roots that contains the given path, or null if there is none.
+     * With nested working copies (e.g. externals), the path belongs to the innermost one.
+     */
+    static File findDeepestContainingRoot(final Path path, final Collection<File> roots) {
+        File ret = null;
+        int retDepth = -1;
+        for (final File root : roots) {
+            final Path rootPath = root.toPath().toAbsolutePath().normalize();
+            if (path.startsWith(rootPath) && rootPath.getNameCount() > retDepth) {
+                ret = root;
+                retDepth = rootPath.getNameCount();
+            }
+        }
+        return ret;
+    }
 
-        final SVNInfo info = this.mgr.getWCClient().doInfo(wcPath, SVNRevision.WORKING);
-        final File wcRoot = info.getWorkingCopyRoot();
-        final SvnRepo svnRepo = CachedLog.getInstance().mapWorkingCopyRootToRepository(this.mgr, wcRoot);
-        if (!changeMap.containsKey(svnRepo)) {
-            changeMap.put(svnRepo, new TreeMap<String, CachedLogEntryPath>());
+    /**
+     * Determines the status of all versioned files at or below the given paths, including unmodified files.
+     * All paths are handled with a single status walk starting at their deepest common ancestor.
+     */
+    private SortedMap<String, CachedLogEntryPath> collectLocalFiles(
+            final SvnRepo svnRepo,
+            final Set<Path> relevantPaths) throws SVNException {
+
+        Path walkRoot = relevantPaths.iterator().next();
+        for (final Path path : relevantPaths) {
+            while (!path.startsWith(walkRoot)) {
+                walkRoot = walkRoot.getParent();
+            }
         }
-        final SortedMap<String, CachedLogEntryPath> paths = changeMap.get(svnRepo);
 
+        final SortedMap<String, CachedLogEntryPath> paths = new TreeMap<>();
         this.mgr.getStatusClient().doStatus(
-                wcPath,
+                walkRoot.toFile(),
                 SVNRevision.WORKING,
                 SVNDepth.INFINITY,
                 false, /* no remote */
@@ -311,13 +408,25 @@ public class SvnChangeSource implements IChangeSource {
                 new ISVNStatusHandler() {
                     @Override
                     public void handleStatus(final SVNStatus status) throws SVNException {
-                        if (status.isVersioned()) {
+                        if (status.isVersioned() && isAtOrBelowOneOf(status.getFile().toPath(), relevantPaths)) {
                             final CachedLogEntryPath entry = new CachedLogEntryPath(svnRepo, status);
                             paths.put(entry.getPath(), entry);
                         }
                     }
                 },
                 null); /* no change lists */
+        return paths;
+    }
+
+    private static boolean isAtOrBelowOneOf(final Path path, final Set<Path> candidates) {
+        Path current = path.toAbsolutePath().normalize();
+        while (current != null) {
+            if (candidates.contains(current)) {
+                return true;
+            }
+            current = current.getParent();
+        }
+        return false;
     }
 
     private Map<File, IRevisionedFile> extractLocalPaths(final Collection<WorkingCopyRevision> revisions) {
@@ -357,33 +466,272 @@ public class SvnChangeSource implements IChangeSource {
             final String key,
             final IMutableFileHistoryGraph historyGraph,
             final IChangeSourceUi ui) throws SVNException {
+        this.refreshLogs(ui);
         final RelevantRevisionLookupHandler handler = new RelevantRevisionLookupHandler(this.createPatternForKey(key));
+        final String indexedKey = this.patternRequiresKey && TicketKeyIndex.isIndexable(key) ? key : null;
         for (final File workingCopyRoot : this.workingCopyRoots) {
             if (ui.isCanceled()) {
                 throw new OperationCanceledException();
             }
-            CachedLog.getInstance().traverseRecentEntries(this.mgr, workingCopyRoot, handler, ui);
+            CachedLog.getInstance().traverseRecentEntries(workingCopyRoot, indexedKey, handler, ui);
         }
         return handler.determineRelevantRevisions(historyGraph, ui);
     }
 
+    /**
+     * Loads the new log entries of all working copy roots. The working copy roots are refreshed concurrently,
+     * so that the time needed is determined by the slowest server and not by the sum of all servers.
+     * Used local mirrors are synchronized first, as the background synchronization might be some time ago.
+     */
+    private void refreshLogs(final IChangeSourceUi ui) throws SVNException {
+        if (this.workingCopyRoots.isEmpty()) {
+            return;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(this.workingCopyRoots.size());
+        try {
+            final List<Future<Void>> results = new ArrayList<>();
+            for (final File workingCopyRoot : this.workingCopyRoots) {
+                final SVNClientManager rootMgr = this.mgrPerWcRoot.get(workingCopyRoot);
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws SVNException {
+                        if (SvnMirror.getInstance().isEnabled()) {
+                            final SvnRepo repo =
+                                    CachedLog.getInstance().mapWorkingCopyRootToRepository(rootMgr, workingCopyRoot);
+                            if (repo != null) {
+                                SvnMirror.getInstance().synchronizeIfUsed(repo);
+                            }
+                        }
+                        CachedLog.getInstance().refresh(rootMgr, workingCopyRoot);
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> result : results) {
+                this.waitFor(result, ui);
+            }
+        } finally {
+            //refreshes that are still running after a cancellation are allowed to complete in the background
+            executor.shutdown();
+        }
+    }
+
+    private void waitFor(final Future<Void> result, final IChangeSourceUi ui) throws SVNException {
+        try {
+            while (true) {
+                if (ui.isCanceled()) {
+                    throw new OperationCanceledException();
+                }
+                try {
+                    result.get(100, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (final TimeoutException e) {
+                    //check for cancellation and continue waiting
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException();
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof SVNException) {
+                throw (SVNException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw (Error) e.getCause();
+            }
+        }
+    }
+
     private List<ICommit> convertToChanges(
             final IMutableFileHistoryGraph historyGraph,
             final List<? extends ISvnRevision> revisions,
             final IProgressMonitor ui) {
-        final List<ICommit> ret = new ArrayList<>();
+        final List<List<FileDiffAction>> diffsPerRevision = new ArrayList<>();
+        final List<FileDiffAction> allDiffs = new ArrayList<>();
         for (final ISvnRevision e : revisions) {
             if (ui.isCanceled()) {
                 throw new OperationCanceledException();
             }
-            this.convertToCommitIfPossible(historyGraph, e, ret, ui);
+            final List<FileDiffAction> diffs = this.determineDiffsInCommit(historyGraph, e, ui);
+            diffsPerRevision.add(diffs);
+            allDiffs.addAll(diffs);
+        }
+
+        collapseInvisibleSpans(allDiffs);
+        this.prefetchFileContents(revisions, allDiffs, ui);
+        this.computeDiffs(allDiffs, ui);
+
+        //the results are applied sequentially and in the original order, so that the result is deterministic
+        final List<ICommit> ret = new ArrayList<>();
+        for (int i = 0; i < revisions.size(); i++) {
+            this.convertToCommitIfPossible(revisions.get(i), diffsPerRevision.get(i), ret);
         }
         return ret;
     }
 
-    private void convertToCommitIfPossible(final IMutableFileHistoryGraph historyGraph, final ISvnRevision e,
-            final Collection<? super ICommit> result, final IProgressMonitor ui) {
-        final List<? extends IChange> changes = this.determineChangesInCommit(historyGraph, e, ui);
+    /**
+     * Collapses runs of invisible changes of a file. Invisible changes don't result in stops, their diffs are only
+     * needed to trace fragments through the history. Therefore it suffices to diff the start of a run against its
+     * end and to store the result on the last edge of the run, while the other edges of the run stay empty.
+     * The contents of the intermediate revisions are not needed at all then.
+     */
+    private static void collapseInvisibleSpans(final List<FileDiffAction> diffs) {
+        final Map<IFileHistoryNode, FileDiffAction> invisibleDiffPerNode = new HashMap<>();
+        for (final FileDiffAction diff : diffs) {
+            if (!diff.isVisible && diff.node.getAncestors().size() == 1) {
+                invisibleDiffPerNode.put(diff.node, diff);
+            }
+        }
+
+        for (final FileDiffAction diff : invisibleDiffPerNode.values()) {
+            final FileDiffAction predecessor = invisibleDiffPerNode.get(diff.spanStart);
+            if (predecessor != null && diff.spanStart.getDescendants().size() == 1) {
+                predecessor.collapsed = true;
+            }
+        }
+
+        for (final FileDiffAction diff : invisibleDiffPerNode.values()) {
+            if (diff.collapsed) {
+                continue;
+            }
+            FileDiffAction predecessor = invisibleDiffPerNode.get(diff.spanStart);
+            while (predecessor != null && predecessor.collapsed) {
+                diff.spanStart = predecessor.spanStart;
+                predecessor = invisibleDiffPerNode.get(diff.spanStart);
+            }
+        }
+    }
+
+    /**
+     * Computes the given diffs. As they are independent of each other, they are computed in parallel.
+     */
+    private void computeDiffs(final List<FileDiffAction> diffs, final IProgressMonitor ui) {
+        if (diffs.size() <= 1) {
+            for (final FileDiffAction diff : diffs) {
+                diff.invoke();
+            }
+            return;
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for (final FileDiffAction diff : diffs) {
+                pool.execute(diff);
+            }
+            for (final FileDiffAction diff : diffs) {
+                if (ui.isCanceled()) {
+                    throw new OperationCanceledException();
+                }
+                diff.join();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads the contents of all file revisions needed to compute the given diffs before the diffs are computed.
+     * This allows the contents to be fetched concurrently instead of one after the other.
+     */
+    private void prefetchFileContents(
+            final List<? extends ISvnRevision> revisions,
+            final List<FileDiffAction> diffs,
+            final IProgressMonitor ui) {
+        final Map<SvnRepo, Map<Pair<String, Long>, File>> baseFilesPerRepo = new LinkedHashMap<>();
+        for (final ISvnRevision e : revisions) {
+            for (final CachedLogEntryPath path : e.getChangedPaths().values()) {
+                if (path.isFile()) {
+                    addBaseFileToPrefetch(baseFilesPerRepo, e.getRepository(), path);
+                }
+            }
+        }
+        final Map<SvnRepo, List<Pair<String, Long>>> filesPerRepo = new LinkedHashMap<>();
+        for (final FileDiffAction diff : diffs) {
+            if (!diff.collapsed) {
+                addFileToPrefetch(filesPerRepo, diff.node.getFile());
+                addFileToPrefetch(filesPerRepo, diff.spanStart.getFile());
+            }
+        }
+        //the base contents of locally changed files are read from the working copy, only the rest needs the server
+        for (final Entry<SvnRepo, Map<Pair<String, Long>, File>> e : baseFilesPerRepo.entrySet()) {
+            if (ui.isCanceled()) {
+                throw new OperationCanceledException();
+            }
+            e.getKey().prefetchBaseContents(this.mgr, e.getValue(), ui);
+        }
+        for (final Entry<SvnRepo, List<Pair<String, Long>>> e : filesPerRepo.entrySet()) {
+            if (ui.isCanceled()) {
+                throw new OperationCanceledException();
+            }
+            e.getKey().prefetchFileContents(e.getValue(), this.maxTextDiffThreshold, ui);
+        }
+    }
+
+    /**
+     * If the given path is a file in the working copy that has a base text, remembers the file revision
+     * of the base text together with the local file.
+     */
+    private static void addBaseFileToPrefetch(
+            final Map<SvnRepo, Map<Pair<String, Long>, File>> baseFilesPerRepo,
+            final SvnRepo repo,
+            final CachedLogEntryPath path) {
+        if (path.getLocalPath() == null || path.isDeleted() || path.getAncestorRevision() < 0) {
+            return;
+        }
+        final String basePath;
+        if (path.getCopyPath() != null) {
+            basePath = path.getCopyPath();
+        } else if (!path.isNew()) {
+            basePath = path.getPath();
+        } else {
+            return;
+        }
+        Map<Pair<String, Long>, File> files = baseFilesPerRepo.get(repo);
+        if (files == null) {
+            files = new LinkedHashMap<>();
+            baseFilesPerRepo.put(repo, files);
+        }
+        files.put(Pair.create(basePath, path.getAncestorRevision()), path.getLocalPath());
+    }
+
+    private static void addFileToPrefetch(
+            final Map<SvnRepo, List<Pair<String, Long>>> filesPerRepo, final IRevisionedFile file) {
+        file.getRevision().accept(new IRevisionVisitor<Void>() {
+
+            @Override
+            public Void handleLocalRevision(final ILocalRevision revision) {
+                return null;
+            }
+
+            @Override
+            public Void handleRepoRevision(final IRepoRevision revision) {
+                if (revision.getRepository() instanceof SvnRepo) {
+                    final SvnRepo repo = (SvnRepo) revision.getRepository();
+                    List<Pair<String, Long>> files = filesPerRepo.get(repo);
+                    if (files == null) {
+                        files = new ArrayList<>();
+                        filesPerRepo.put(repo, files);
+                    }
+                    files.add(Pair.create(file.getPath(), (Long) revision.getId()));
+                }
+                return null;
+            }
+
+            @Override
+            public Void handleUnknownRevision(final IUnknownRevision revision) {
+                return null;
+            }
+
+        });
+    }
+
+    private void convertToCommitIfPossible(final ISvnRevision e, final List<FileDiffAction> diffs,
+            final Collection<? super ICommit> result) {
+        final List<IChange> changes = new ArrayList<>();
+        for (final FileDiffAction diff : diffs) {
+            diff.applyResult(changes);
+        }
         if (!changes.isEmpty()) {
             result.add(ChangestructureFactory.createCommit(
                     e.toPrettyString(),
@@ -424,12 +772,12 @@ public class SvnChangeSource implements IChangeSource {
 
     }
 
-    private List<? extends IChange> determineChangesInCommit(
+    private List<FileDiffAction> determineDiffsInCommit(
             final IMutableFileHistoryGraph historyGraph,
             final ISvnRevision e,
             final IProgressMonitor ui) {
 
-        final List<IChange> ret = new ArrayList<>();
+        final List<FileDiffAction> ret = new ArrayList<>();
         final Map<String, CachedLogEntryPath> changedPaths = e.getChangedPaths();
         final DirectoryCopyInfo dirCopies = new DirectoryCopyInfo(changedPaths.values());
         final Set<String> copySources = this.determineCopySources(changedPaths.values(), dirCopies);
@@ -452,7 +800,9 @@ public class SvnChangeSource implements IChangeSource {
             final IRevisionedFile fileInfo = ChangestructureFactory.createFileInRevision(path, this.revision(e));
             final IMutableFileHistoryNode node = historyGraph.getNodeFor(fileInfo);
             if (node != null) {
-                ret.addAll(this.determineChangesInFile(node, e.isVisible()));
+                for (final IMutableFileHistoryEdge ancestorEdge : node.getAncestors()) {
+                    ret.add(new FileDiffAction(node, ancestorEdge, e.isVisible()));
+                }
             }
         }
         return ret;
@@ -489,58 +839,131 @@ public class SvnChangeSource implements IChangeSource {
         return result.get();
     }
 
-    private List<? extends IChange> determineChangesInFile(
-            final IMutableFileHistoryNode node,
-            final boolean isVisible) {
-
-        final byte[] newFileContent;
-        try {
-            newFileContent = node.getFile().getContents();
-        } catch (final Exception e) {
-            return Collections.emptyList(); // loading new file data failed
+    /**
+     * Determines the changes between a file and one of its ancestors. The changes are determined in
+     * {@link #compute()}, which does not modify shared state and can therefore run in parallel to other diffs.
+     * They are added to the history graph afterwards by {@link #applyResult(List)}.
+     * For the last change in a run of invisible changes, the diff is computed against the start of the run,
+     * while the other changes in the run are collapsed and not computed at all.
+     */
+    private final class FileDiffAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 2795542372582045946L;
+
+        private final IMutableFileHistoryNode node;
+        private final IMutableFileHistoryEdge ancestorEdge;
+        private final boolean isVisible;
+        private IFileHistoryNode spanStart;
+        private boolean collapsed;
+        private final List<IChange> changes = new ArrayList<>();
+        private List<IHunk> hunks;
+
+        public FileDiffAction(
+                final IMutableFileHistoryNode node,
+                final IMutableFileHistoryEdge ancestorEdge,
+                final boolean isVisible) {
+            this.node = node;
+            this.ancestorEdge = ancestorEdge;
+            this.isVisible = isVisible;
+            this.spanStart = ancestorEdge.getAncestor();
         }
 
-        final List<IChange> ret = new ArrayList<>();
-        for (final IMutableFileHistoryEdge ancestorEdge : node.getAncestors()) {
-            final IFileHistoryNode ancestor = ancestorEdge.getAncestor();
+        @Override
+        protected void compute() {
+            if (this.collapsed) {
+                //the changes are contained in the diff at the end of the run
+                return;
+            }
+            final IFileHistoryNode ancestor = this.spanStart;
+            if (isKnownToBeBinary(ancestor.getFile()) || isKnownToBeBinary(this.node.getFile())) {
+                //don't load the contents of large files just to find out that they can't be diffed textually
+                this.changes.add(SvnChangeSource.this.createBinaryChange(this.node, ancestor, this.isVisible));
+                return;
+            }
+
+            final byte[] newFileContent;
+            try {
+                newFileContent = this.node.getFile().getContents();
+            } catch (final Exception e) {
+                return; // loading new file data failed
+            }
 
             final byte[] oldFileContent;
             try {
                 oldFileContent = ancestor.getFile().getContents();
             } catch (final Exception e) {
-                continue; // loading old file data failed
+                return; // loading old file data failed
             }
 
-            if (this.contentLooksBinary(oldFileContent) || oldFileContent.length > this.maxTextDiffThreshold) {
-                ret.add(this.createBinaryChange(node, ancestor, isVisible));
-                continue;
+            if (SvnChangeSource.this.contentLooksBinary(oldFileContent)
+                    || oldFileContent.length > SvnChangeSource.this.maxTextDiffThreshold) {
+                this.changes.add(SvnChangeSource.this.createBinaryChange(this.node, ancestor, this.isVisible));
+                return;
             }
-            if (this.contentLooksBinary(newFileContent) || newFileContent.length > this.maxTextDiffThreshold) {
-                ret.add(this.createBinaryChange(node, ancestor, isVisible));
-                continue;
+            if (SvnChangeSource.this.contentLooksBinary(newFileContent)
+                    || newFileContent.length > SvnChangeSource.this.maxTextDiffThreshold) {
+                this.changes.add(SvnChangeSource.this.createBinaryChange(this.node, ancestor, this.isVisible));
+                return;
             }
 
+            //every content is scanned only once, for guessing the encoding and for the diff
+            final ScannedText oldText = ScannedText.scan(oldFileContent);
+            final ScannedText newText = ScannedText.scan(newFileContent);
             final IDiffAlgorithm diffAlgorithm = DiffAlgorithmFactory.createDefault();
-            final List<Pair<IFragment, IFragment>> changes = diffAlgorithm.determineDiff(
+            final DiffResult diff = diffAlgorithm.determineDiff(
                     ancestor.getFile(),
-                    oldFileContent,
-                    node.getFile(),
-                    newFileContent,
-                    this.guessEncoding(oldFileContent, newFileContent));
-            final List<IHunk> hunks = new ArrayList<>();
-            for (final Pair<IFragment, IFragment> pos : changes) {
-                ret.add(ChangestructureFactory.createTextualChangeHunk(
-                        pos.getFirst(), pos.getSecond(), false, isVisible));
-                hunks.add(new Hunk(pos.getFirst(), pos.getSecond()));
+                    oldText,
+                    this.node.getFile(),
+                    newText,
+                    SvnChangeSource.this.guessEncoding(oldText, newText),
+                    DiffAlgorithmFactory.getDefaultBudget());
+            if (diff.isApproximate()) {
+                Logger.info("diff for " + this.node.getFile() + " is approximate, exact diff was stopped after "
+                        + diff.getSteps() + " steps and " + diff.getMillis() + " ms");
+            }
+            this.hunks = new ArrayList<>();
+            for (final Pair<IFragment, IFragment> pos : diff.getFragments()) {
+                this.changes.add(ChangestructureFactory.createTextualChangeHunk(
+                        pos.getFirst(), pos.getSecond(), false, this.isVisible));
+                this.hunks.add(new Hunk(pos.getFirst(), pos.getSecond()));
             }
+        }
 
-            try {
-                ancestorEdge.setDiff(ancestorEdge.getDiff().merge(hunks));
-            } catch (final IncompatibleFragmentException e) {
-                throw new ReviewtoolException(e);
+        /**
+         * Adds the determined changes to the given list and the determined hunks to the history graph.
+         */
+        public void applyResult(final List<IChange> result) {
+            result.addAll(this.changes);
+            if (this.hunks != null) {
+                try {
+                    this.ancestorEdge.setDiff(this.ancestorEdge.getDiff().merge(this.hunks));
+                } catch (final IncompatibleFragmentException e) {
+                    throw new ReviewtoolException(e);
+                }
             }
         }
-        return ret;
+    }
+
+    private static boolean isKnownToBeBinary(final IRevisionedFile file) {
+        return file.getRevision().accept(new IRevisionVisitor<Boolean>() {
+
+            @Override
+            public Boolean handleLocalRevision(final ILocalRevision revision) {
+                return false;
+            }
+
+            @Override
+            public Boolean handleRepoRevision(final IRepoRevision revision) {
+                return revision.getRepository() instanceof SvnRepo
+                        && ((SvnRepo) revision.getRepository()).isKnownToBeBinary(file.getPath(), revision);
+            }
+
+            @Override
+            public Boolean handleUnknownRevision(final IUnknownRevision revision) {
+                return false;
+            }
+
+        });
     }
 
     private boolean contentLooksBinary(byte[] fileContent) {
@@ -562,29 +985,14 @@ public class SvnChangeSource implements IChangeSource {
         return b != '\n' && b != '\r' && b != '\t' && b < 0x20 && b >= 0;
     }
 
-    private String guessEncoding(byte[] oldFileContent, byte[] newFileContent) {
-        if (this.isValidUtf8(oldFileContent) && this.isValidUtf8(newFileContent)) {
+    private String guessEncoding(ScannedText oldFileContent, ScannedText newFileContent) {
+        if (oldFileContent.isValidUtf8() && newFileContent.isValidUtf8()) {
             return "UTF-8";
         } else {
             return "ISO-8859-1";
         }
     }
 
-    /**
-     * Returns true iff the given bytes are syntactically valid UTF-8.
-     */
-    private boolean isValidUtf8(byte[] content) {
-        try {
-            StandardCharsets.UTF_8.newDecoder()
-                .onMalformedInput(CodingErrorAction.REPORT)
-                .onUnmappableCharacter(CodingErrorAction.REPORT)
-                .decode(ByteBuffer.wrap(content));
-            return true;
-        } catch (final CharacterCodingException e) {
-            return false;
-        }
-    }
-
     private Set<String> determineCopySources(Collection<CachedLogEntryPath> entries, DirectoryCopyInfo dirMoves) {
         final Set<String> ret = new LinkedHashSet<>();
 
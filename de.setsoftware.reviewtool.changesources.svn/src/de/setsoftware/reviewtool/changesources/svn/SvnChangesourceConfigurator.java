@@ -42,11 +42,17 @@ public class SvnChangesourceConfigurator implements IConfigurator {
         final String maxTextDiffThreshold = xml.getAttribute("maxTextDiffFileSizeThreshold");
         final String minLogCacheSize = xml.getAttribute("minLogCacheSize");
         final String maxLogCacheSize = xml.getAttribute("maxLogCacheSize");
+        final String maxContentCacheSize = xml.getAttribute("maxContentCacheSize");
+        final String useLocalMirror = xml.getAttribute("useLocalMirror");
+        if (!maxContentCacheSize.isEmpty()) {
+            SvnContentStore.getInstance().setMaxSize(Long.parseLong(maxContentCacheSize));
+        }
         configurable.setChangeSource(new SvnChangeSource(
                 projectDirs, pattern, user, pwd,
                 Long.parseLong(maxTextDiffThreshold),
                 minLogCacheSize.isEmpty() ? 1000 : Integer.parseInt(minLogCacheSize),
-                maxLogCacheSize.isEmpty() ? 1000 : Integer.parseInt(maxLogCacheSize)));
+                maxLogCacheSize.isEmpty() ? 1000 : Integer.parseInt(maxLogCacheSize),
+                Boolean.parseBoolean(useLocalMirror)));
     }
 
 }
@@ -0,0 +1,332 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.runtime.Platform;
+import org.osgi.framework.FrameworkUtil;
+
+import de.setsoftware.reviewtool.base.Logger;
+
+/**
+ * Persistent store for the contents of file revisions, so that they don't have to be fetched from the server again
+ * after a restart. The contents are stored content-addressed, i.e. in a file named after their hash, so that
+ * identical contents (which are very common for unchanged files in different revisions) are stored only once.
+ * An append-only index maps (repository UUID, path, revision) to the hash.
+ *
+ * <p>The total size of the stored contents is bounded. When it is exceeded, the least recently used contents
+ * are deleted. The time of last use is stored as the modification time of the content files, so that it is
+ * retained across restarts.
+ */
+final class SvnContentStore {
+
+    /**
+     * Key of a file revision in the store.
+     */
+    private static final class Key {
+        private final String repoId;
+        private final String path;
+        private final long revision;
+
+        Key(final String repoId, final String path, final long revision) {
+            this.repoId = repoId;
+            this.path = path;
+            this.revision = revision;
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (object instanceof Key) {
+                final Key other = (Key) object;
+                return this.repoId.equals(other.repoId)
+                        && this.path.equals(other.path)
+                        && this.revision == other.revision;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return this.path.hashCode() ^ Long.valueOf(this.revision).hashCode();
+        }
+    }
+
+    private static final String STORE_DIRECTORY = "svncontent";
+    private static final String INDEX_FILE = "index";
+    private static final String CONTENT_FILE_EXTENSION = ".bin";
+    private static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    private static SvnContentStore instance;
+
+    private final File directory;
+    private final File indexFile;
+    private final Map<Key, String> hashPerKey;
+    private final LinkedHashMap<String, Long> sizePerHashInLruOrder;
+    private final Map<String, Long> sizePerUndeletedHash;
+    private long totalSize;
+    private long maxSize;
+
+    /**
+     * Creates a store in the given directory and reads its index.
+     */
+    SvnContentStore(final File directory, final long maxSize) {
+        this.directory = directory;
+        this.indexFile = new File(directory, INDEX_FILE);
+        this.hashPerKey = new HashMap<>();
+        this.sizePerHashInLruOrder = new LinkedHashMap<>(16, 0.75f, true);
+        this.sizePerUndeletedHash = new HashMap<>();
+        this.maxSize = maxSize;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Logger.warn("could not create svn content cache directory " + directory, null);
+            return;
+        }
+        this.readContentFiles();
+        this.readIndex();
+    }
+
+    /**
+     * Returns the store in the plugin's state location.
+     */
+    public static synchronized SvnContentStore getInstance() {
+        if (instance == null) {
+            instance = new SvnContentStore(
+                    Platform.getStateLocation(FrameworkUtil.getBundle(SvnContentStore.class))
+                        .append(STORE_DIRECTORY).toFile(),
+                    DEFAULT_MAX_SIZE);
+        }
+        return instance;
+    }
+
+    /**
+     * Changes the maximal total size of the stored contents.
+     */
+    public synchronized void setMaxSize(final long maxSize) {
+        this.maxSize = maxSize;
+        this.evictIfNecessary();
+    }
+
+    private void readContentFiles() {
+        final File[] files = this.directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        final List<File> contentFiles = new ArrayList<>();
+        for (final File file : files) {
+            if (file.getName().endsWith(CONTENT_FILE_EXTENSION)) {
+                contentFiles.add(file);
+            }
+        }
+        Collections.sort(contentFiles, new Comparator<File>() {
+            @Override
+            public int compare(final File o1, final File o2) {
+                return Long.compare(o1.lastModified(), o2.lastModified());
+            }
+        });
+        for (final File file : contentFiles) {
+            final String name = file.getName();
+            this.sizePerHashInLruOrder.put(
+                    name.substring(0, name.length() - CONTENT_FILE_EXTENSION.length()), file.length());
+            this.totalSize += file.length();
+        }
+    }
+
+    private void readIndex() {
+        if (!this.indexFile.exists()) {
+            return;
+        }
+        int staleRecords = 0;
+        boolean partialRecord = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.indexFile)))) {
+            while (in.available() > 0) {
+                partialRecord = true;
+                final Key key = new Key(in.readUTF(), in.readUTF(), in.readLong());
+                final String hash = in.readUTF();
+                partialRecord = false;
+                if (this.sizePerHashInLruOrder.containsKey(hash)) {
+                    if (this.hashPerKey.put(key, hash) != null) {
+                        staleRecords++;
+                    }
+                } else {
+                    staleRecords++;
+                }
+            }
+        } catch (final IOException e) {
+            Logger.warn("problem while reading svn content cache index", e);
+        }
+        //a partially written last record has to be removed, otherwise it would corrupt the following records
+        if (partialRecord || staleRecords > this.hashPerKey.size()) {
+            this.rewriteIndex();
+        }
+    }
+
+    private void rewriteIndex() {
+        final File tmp = new File(this.directory, INDEX_FILE + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                for (final Entry<Key, String> e : this.hashPerKey.entrySet()) {
+                    writeIndexRecord(out, e.getKey(), e.getValue());
+                }
+            }
+            Files.move(tmp.toPath(), this.indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException e) {
+            Logger.warn("problem while compacting svn content cache index", e);
+        }
+    }
+
+    private static void writeIndexRecord(final DataOutputStream out, final Key key, final String hash)
+        throws IOException {
+        out.writeUTF(key.repoId);
+        out.writeUTF(key.path);
+        out.writeLong(key.revision);
+        out.writeUTF(hash);
+    }
+
+    /**
+     * Returns the stored contents of the given file revision, or null if they are not stored.
+     */
+    public byte[] get(final String repoId, final String path, final long revision) {
+        final File file;
+        synchronized (this) {
+            final String hash = this.hashPerKey.get(new Key(repoId, path, revision));
+            if (hash == null || this.sizePerHashInLruOrder.get(hash) == null) {
+                return null;
+            }
+            file = this.getContentFile(hash);
+        }
+        try {
+            final byte[] ret = Files.readAllBytes(file.toPath());
+            if (!file.setLastModified(System.currentTimeMillis())) {
+                Logger.debug("could not update access time of " + file);
+            }
+            return ret;
+        } catch (final IOException e) {
+            //the file has been evicted concurrently or is unreadable
+            return null;
+        }
+    }
+
+    /**
+     * Stores the contents of the given file revision.
+     */
+    public void put(final String repoId, final String path, final long revision, final byte[] contents) {
+        final String hash = hash(contents);
+        final Key key = new Key(repoId, path, revision);
+        try {
+            synchronized (this) {
+                if (hash.equals(this.hashPerKey.get(key))) {
+                    return;
+                }
+                if (this.sizePerHashInLruOrder.get(hash) == null) {
+                    this.forgetUndeletedFile(hash);
+                    this.writeContentFile(hash, contents);
+                    this.sizePerHashInLruOrder.put(hash, (long) contents.length);
+                    this.totalSize += contents.length;
+                }
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(this.indexFile, true)))) {
+                    writeIndexRecord(out, key, hash);
+                }
+                this.hashPerKey.put(key, hash);
+                this.evictIfNecessary();
+            }
+        } catch (final IOException e) {
+            Logger.warn("problem while storing file contents in svn content cache", e);
+        }
+    }
+
+    private void writeContentFile(final String hash, final byte[] contents) throws IOException {
+        final File target = this.getContentFile(hash);
+        final File tmp = new File(this.directory, target.getName() + ".tmp");
+        Files.write(tmp.toPath(), contents);
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void evictIfNecessary() {
+        this.retryDeletions();
+        final Set<String> evictedHashes = new HashSet<>();
+        final Iterator<Entry<String, Long>> iter = this.sizePerHashInLruOrder.entrySet().iterator();
+        while (this.totalSize > this.maxSize && iter.hasNext()) {
+            final Entry<String, Long> eldest = iter.next();
+            final File file = this.getContentFile(eldest.getKey());
+            if (file.delete() || !file.exists()) {
+                this.totalSize -= eldest.getValue();
+            } else {
+                //files that are in use cannot be deleted on some platforms. They are still counted in the total
+                //  size and deleted in a later eviction
+                this.sizePerUndeletedHash.put(eldest.getKey(), eldest.getValue());
+            }
+            evictedHashes.add(eldest.getKey());
+            iter.remove();
+        }
+        //the evicted contents have to be stored again when they are put the next time. Their index records are
+        //  dropped when the index is read the next time
+        this.hashPerKey.values().removeAll(evictedHashes);
+    }
+
+    private void retryDeletions() {
+        final Iterator<Entry<String, Long>> iter = this.sizePerUndeletedHash.entrySet().iterator();
+        while (iter.hasNext()) {
+            final Entry<String, Long> e = iter.next();
+            final File file = this.getContentFile(e.getKey());
+            if (file.delete() || !file.exists()) {
+                this.totalSize -= e.getValue();
+                iter.remove();
+            }
+        }
+    }
+
+    private void forgetUndeletedFile(final String hash) {
+        final Long size = this.sizePerUndeletedHash.remove(hash);
+        if (size != null) {
+            //the file is overwritten when the contents are stored again
+            this.totalSize -= size;
+        }
+    }
+
+    private File getContentFile(final String hash) {
+        return new File(this.directory, hash + CONTENT_FILE_EXTENSION);
+    }
+
+    private static String hash(final byte[] contents) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(contents);
+            final StringBuilder ret = new StringBuilder(2 * digest.length + 10);
+            for (final byte b : digest) {
+                ret.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            //include the size to make collisions even less likely
+            return ret.append('_').append(contents.length).toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-1 is always available", e);
+        }
+    }
+
+    /**
+     * Returns the total size of the stored contents.
+     */
+    synchronized long getTotalSize() {
+        return this.totalSize;
+    }
+}
@@ -1,16 +1,44 @@
 package de.setsoftware.reviewtool.changesources.svn;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.tmatesoft.svn.core.ISVNDirEntryHandler;
+import org.tmatesoft.svn.core.SVNDirEntry;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNNodeKind;
+import org.tmatesoft.svn.core.SVNProperties;
+import org.tmatesoft.svn.core.SVNProperty;
+import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.io.SVNRepository;
 import org.tmatesoft.svn.core.wc.SVNClientManager;
 
+import de.setsoftware.reviewtool.base.Logger;
+import de.setsoftware.reviewtool.base.Pair;
+
 /**
  * Represents a cache for file contents for a single SVN repository.
+ * Contents are cached in memory and in the persistent {@link SvnContentStore}.
  */
 public class SvnFileCache {
 
@@ -45,11 +73,26 @@ public class SvnFileCache {
         public int hashCode() {
             return this.path.hashCode() ^ Long.valueOf(this.revision).hashCode();
         }
+
+        String getDirectory() {
+            final int slash = this.path.lastIndexOf('/');
+            return slash <= 0 ? "/" : this.path.substring(0, slash);
+        }
+
+        String getName() {
+            return this.path.substring(this.path.lastIndexOf('/') + 1);
+        }
     }
 
+    private static final int PREFETCH_SESSIONS = 4;
+
+    private static final int DIR_ENTRY_FIELDS =
+            SVNDirEntry.DIRENT_KIND | SVNDirEntry.DIRENT_SIZE | SVNDirEntry.DIRENT_HAS_PROPERTIES;
+
     private final SVNClientManager mgr;
     private final SvnRepo repoUrl;
     private final Map<CachedFile, byte[]> fileContents;
+    private final Set<CachedFile> binaryFiles;
 
     /**
      * Constructor.
@@ -59,7 +102,8 @@ public class SvnFileCache {
     public SvnFileCache(final SVNClientManager mgr, final SvnRepo repoUrl) {
         this.mgr = mgr;
         this.repoUrl = repoUrl;
-        this.fileContents = new HashMap<>();
+        this.fileContents = new ConcurrentHashMap<>();
+        this.binaryFiles = Collections.newSetFromMap(new ConcurrentHashMap<CachedFile, Boolean>());
     }
 
     /**
@@ -73,27 +117,233 @@ public class SvnFileCache {
         final CachedFile entry = new CachedFile(path, revision);
         byte[] contents = this.fileContents.get(entry);
         if (contents == null) {
-            contents = this.loadFile(this.repoUrl, path, revision);
-            this.fileContents.put(entry, contents);
+            final SVNURL accessUrl = this.repoUrl.getAccessUrl();
+            try {
+                contents = this.loadFile(accessUrl, entry);
+            } catch (final SVNException e) {
+                if (accessUrl.equals(this.repoUrl.getRemoteUrl())) {
+                    throw e;
+                }
+                //the revision might not have been mirrored yet
+                contents = this.loadFile(this.repoUrl.getRemoteUrl(), entry);
+            }
         }
         return contents;
     }
 
     /**
-     * Loads the contents of some file in the repository.
-     * @param repoUrl The {@link SvnRepo}.
+     * Loads the contents of the given files that are not cached yet. The files are fetched concurrently,
+     * every thread reusing a single repository session for all its files. Errors are ignored, as the
+     * file will be fetched again when its contents are needed.
+     * Before anything is loaded, the sizes of the files are determined with a single listing per directory, and
+     * for files with properties, the properties are queried. Files that are larger than the given size or have a
+     * binary MIME type are not loaded, they are only remembered as binary files. This does not depend on whether
+     * the contents are in the {@link SvnContentStore} already.
+     * @param files Pairs of file path and file revision.
+     * @param maxTextSize The maximal size of files that can be diffed textually.
+     */
+    public void prefetch(
+            final Collection<Pair<String, Long>> files, final long maxTextSize, final IProgressMonitor ui) {
+        final Map<Pair<String, Long>, List<CachedFile>> filesPerDirectory = new LinkedHashMap<>();
+        for (final Pair<String, Long> file : new LinkedHashSet<>(files)) {
+            final CachedFile entry = new CachedFile(file.getFirst(), file.getSecond());
+            if (!this.fileContents.containsKey(entry) && !this.binaryFiles.contains(entry)) {
+                final Pair<String, Long> directory = Pair.create(entry.getDirectory(), entry.revision);
+                List<CachedFile> filesInDirectory = filesPerDirectory.get(directory);
+                if (filesInDirectory == null) {
+                    filesInDirectory = new ArrayList<>();
+                    filesPerDirectory.put(directory, filesInDirectory);
+                }
+                filesInDirectory.add(entry);
+            }
+        }
+        if (filesPerDirectory.isEmpty()) {
+            return;
+        }
+        final Queue<List<CachedFile>> pending = new ConcurrentLinkedQueue<>(filesPerDirectory.values());
+
+        final int sessionCount = Math.min(PREFETCH_SESSIONS, pending.size());
+        final List<Callable<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < sessionCount; i++) {
+            workers.add(new Callable<Void>() {
+                @Override
+                public Void call() throws SVNException {
+                    final SVNRepository repo = SvnFileCache.this.mgr.getRepositoryPool().createRepository(
+                            SvnFileCache.this.repoUrl.getAccessUrl(), false);
+                    try {
+                        List<CachedFile> filesInDirectory;
+                        while ((filesInDirectory = pending.poll()) != null && !ui.isCanceled()) {
+                            SvnFileCache.this.prefetchDirectory(repo, filesInDirectory, maxTextSize, ui);
+                        }
+                    } finally {
+                        repo.closeSession();
+                    }
+                    return null;
+                }
+            });
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(sessionCount);
+        try {
+            for (final Future<Void> result : executor.invokeAll(workers)) {
+                result.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            Logger.debug("prefetching file contents failed: " + e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads the contents of the given files that are not cached yet from the pristine store of the working copy.
+     * Files whose contents cannot be read from there are left to be fetched from the repository.
+     * @param mgr The {@link SVNClientManager} to use for querying the working copy.
+     * @param baseFiles Pairs of file path and file revision, mapped to the local file whose base they are.
+     */
+    public void prefetchFromWorkingCopy(
+            final SVNClientManager mgr, final Map<Pair<String, Long>, File> baseFiles, final IProgressMonitor ui) {
+        for (final Entry<Pair<String, Long>, File> file : baseFiles.entrySet()) {
+            if (ui.isCanceled()) {
+                return;
+            }
+            final CachedFile entry = new CachedFile(file.getKey().getFirst(), file.getKey().getSecond());
+            if (this.fileContents.containsKey(entry)) {
+                continue;
+            }
+            final byte[] contents = SvnPristineStore.readBaseContents(mgr, file.getValue());
+            if (contents != null) {
+                this.fileContents.put(entry, contents);
+            }
+        }
+    }
+
+    /**
+     * Returns true iff it is known from the prefetching that the given file is binary, either because its
+     * MIME type denotes a binary file or because it is too large for a textual diff.
+     */
+    public boolean isKnownToBeBinary(final String path, final long revision) {
+        return this.binaryFiles.contains(new CachedFile(path, revision));
+    }
+
+    /**
+     * Loads the contents of the given files, which are all in the same directory and revision, unless they are
+     * classified as binary. The metadata needed for the classification is queried before any contents are
+     * transferred.
+     */
+    private void prefetchDirectory(final SVNRepository repo, final List<CachedFile> files, final long maxTextSize,
+            final IProgressMonitor ui) {
+        final CachedFile first = files.get(0);
+        final Map<String, SVNDirEntry> dirEntries = new HashMap<>();
+        try {
+            repo.getDir(first.getDirectory(), first.revision, null, DIR_ENTRY_FIELDS, new ISVNDirEntryHandler() {
+                @Override
+                public void handleDirEntry(final SVNDirEntry dirEntry) {
+                    dirEntries.put(dirEntry.getName(), dirEntry);
+                }
+            });
+        } catch (final SVNException e) {
+            Logger.debug("listing " + first.getDirectory() + "@" + first.revision + " failed: " + e);
+            return;
+        }
+
+        for (final CachedFile entry : files) {
+            if (ui.isCanceled()) {
+                return;
+            }
+            final SVNDirEntry dirEntry = dirEntries.get(entry.getName());
+            if (dirEntry == null || dirEntry.getKind() != SVNNodeKind.FILE) {
+                //not a file, left to be handled when its contents are needed
+                continue;
+            }
+            try {
+                if (this.isBinary(repo, entry, dirEntry, maxTextSize)) {
+                    this.binaryFiles.add(entry);
+                } else {
+                    this.loadFile(repo, entry);
+                }
+            } catch (final SVNException e) {
+                Logger.debug("prefetching " + entry.path + "@" + entry.revision + " failed: " + e);
+            }
+        }
+    }
+
+    /**
+     * Returns true iff the given file is too large for a textual diff or has a binary MIME type. The properties
+     * are only queried (without the contents) if the directory entry denotes that there are any.
+     */
+    private boolean isBinary(final SVNRepository repo, final CachedFile entry, final SVNDirEntry dirEntry,
+            final long maxTextSize) throws SVNException {
+        if (dirEntry.getSize() > maxTextSize) {
+            return true;
+        }
+        if (!dirEntry.hasProperties()) {
+            return false;
+        }
+        final SVNProperties properties = new SVNProperties();
+        repo.getFile(entry.path, entry.revision, properties, null);
+        return SVNProperty.isBinaryMimeType(properties.getStringValue(SVNProperty.MIME_TYPE));
+    }
+
+    /**
+     * Loads the contents of some file like {@link #loadFile(SVNRepository, CachedFile)}, using a new repository
+     * session. This method is called concurrently when diffing in parallel, and the shared session of the
+     * repository pool must not be used by several threads at once.
+     * @param url The URL of the repository.
+     * @param entry The file and revision to load.
+     * @return The file contents as a byte array.
+     * @throws SVNException if some error occurs.
+     */
+    private byte[] loadFile(final SVNURL url, final CachedFile entry) throws SVNException {
+        final SVNRepository repo = this.mgr.getRepositoryPool().createRepository(url, false);
+        try {
+            return this.loadFile(repo, entry);
+        } finally {
+            repo.closeSession();
+        }
+    }
+
+    /**
+     * Loads the contents of some file, from the persistent store if possible and from the repository otherwise,
+     * and puts them into the cache.
+     * @param repo The repository session to use.
+     * @param entry The file and revision to load.
+     * @return The file contents as a byte array.
+     * @throws SVNException if some error occurs.
+     */
+    private byte[] loadFile(final SVNRepository repo, final CachedFile entry) throws SVNException {
+        final SvnContentStore store = SvnContentStore.getInstance();
+        byte[] contents = store.get(this.repoUrl.getId(), entry.path, entry.revision);
+        if (contents == null) {
+            contents = fetchFile(repo, entry.path, entry.revision);
+            store.put(this.repoUrl.getId(), entry.path, entry.revision, contents);
+        }
+        this.fileContents.put(entry, contents);
+        return contents;
+    }
+
+    /**
+     * Fetches the contents of some file from the repository. In the common case, only a single request is needed.
+     * Only if that fails it is checked whether the path denotes a file at all.
+     * @param repo The repository session to use.
      * @param path The file path.
      * @param revision The file revision.
-     * @return The file contents as a byte array.
+     * @return The file contents as a byte array, or an empty array if the path does not denote a file.
      * @throws SVNException if some error occurs.
      */
-    private byte[] loadFile(final SvnRepo repoUrl, final String path, final long revision) throws SVNException {
-        final SVNRepository repo = this.mgr.getRepositoryPool().createRepository(repoUrl.getRemoteUrl(), true);
+    private static byte[] fetchFile(final SVNRepository repo, final String path, final long revision)
+        throws SVNException {
         final ByteArrayOutputStream contents = new ByteArrayOutputStream();
-        if (repo.checkPath(path, revision) != SVNNodeKind.FILE) {
-            return new byte[0];
+        try {
+            repo.getFile(path, revision, null, contents);
+        } catch (final SVNException e) {
+            if (repo.checkPath(path, revision) != SVNNodeKind.FILE) {
+                return new byte[0];
+            }
+            throw e;
         }
-        repo.getFile(path, revision, null, contents);
         return contents.toByteArray();
     }
 }
@@ -1,7 +1,6 @@
 package de.setsoftware.reviewtool.changesources.svn;
 
 import java.util.Collections;
-import java.util.List;
 
 import de.setsoftware.reviewtool.model.api.ILocalRevision;
 import de.setsoftware.reviewtool.model.api.IRepoRevision;
@@ -51,17 +50,7 @@ final class SvnFileHistoryGraph extends FileHistoryGraph {
 
     @Override
     public FileHistoryNode findAncestorFor(final IRevisionedFile file) {
-        final List<FileHistoryNode> nodesForKey = this.lookupFile(file);
-        final long targetRevision = getRevision(file);
-        long nearestRevision = Long.MIN_VALUE;
-        FileHistoryNode nearestNode = null;
-        for (final FileHistoryNode node : nodesForKey) {
-            final long nodeRevision = getRevision(node.getFile());
-            if (nodeRevision < targetRevision && nodeRevision > nearestRevision) {
-                nearestNode = node;
-                nearestRevision = nodeRevision;
-            }
-        }
+        final FileHistoryNode nearestNode = this.findLatestNodeBefore(file);
         if (nearestNode != null) {
             return nearestNode.isDeleted() ? null : nearestNode;
         } else {
@@ -70,13 +59,15 @@ final class SvnFileHistoryGraph extends FileHistoryGraph {
     }
 
     /**
-     * Returns the underlying revision number.
+     * Returns the underlying revision number. Local revisions come after all repository revisions, unknown
+     * revisions before them.
      *
      * @param revision The revision.
      * @return The revision number.
      */
-    private static long getRevision(final IRevisionedFile revision) {
-        return revision.getRevision().accept(new IRevisionVisitor<Long>() {
+    @Override
+    protected long getRevisionOrder(final IRevision revision) {
+        return revision.accept(new IRevisionVisitor<Long>() {
 
             @Override
             public Long handleLocalRevision(final ILocalRevision revision) {
@@ -0,0 +1,164 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.runtime.Platform;
+import org.osgi.framework.FrameworkUtil;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.io.fs.FSRepositoryFactory;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+import de.setsoftware.reviewtool.base.Logger;
+import de.setsoftware.reviewtool.base.ReviewtoolException;
+
+/**
+ * Local mirrors of the SVN repositories, kept up to date with svnsync in the background by {@link CachedLogWarmUp}.
+ * When mirroring is enabled, the log and the file contents are read from the local mirror instead of the server,
+ * so that starting a review does not depend on the latency of the server. A mirror is only used after it
+ * has been synchronized completely once, until then the server is used. Before the log is refreshed on demand,
+ * the mirror is synchronized again (see {@link #synchronizeIfUsed(SvnRepo)}), so that the newest commits are
+ * not missed. When a synchronization fails, the server is used until the next synchronization succeeds.
+ */
+final class SvnMirror {
+
+    private static final String MIRROR_DIRECTORY = "svnmirror";
+    private static final String SYNCHRONIZED_MARKER_EXTENSION = ".synchronized";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private static final SvnMirror INSTANCE = new SvnMirror();
+
+    private final Set<String> synchronizedRepos;
+    private final Set<String> staleRepos;
+    private final Object synchronizationLock = new Object();
+    private volatile File directory;
+    private volatile SVNClientManager mgr;
+
+    private SvnMirror() {
+        this.synchronizedRepos = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        this.staleRepos = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    }
+
+    public static SvnMirror getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Enables or disables mirroring.
+     * @param enabled True iff the repositories shall be mirrored.
+     * @param mgr The {@link SVNClientManager} to use for synchronizing the mirrors. It is used exclusively
+     *      by the mirror.
+     */
+    public void configure(final boolean enabled, final SVNClientManager mgr) {
+        if (enabled) {
+            FSRepositoryFactory.setup();
+            this.directory = Platform.getStateLocation(FrameworkUtil.getBundle(SvnMirror.class))
+                    .append(MIRROR_DIRECTORY).toFile();
+            this.mgr = mgr;
+        } else {
+            this.directory = null;
+            this.mgr = null;
+        }
+    }
+
+    /**
+     * Returns true iff mirroring is enabled.
+     */
+    public boolean isEnabled() {
+        return this.directory != null;
+    }
+
+    /**
+     * Returns the URL of the local mirror of the given repository, or null if there is no usable mirror.
+     */
+    public SVNURL getMirrorUrl(final SvnRepo repo) {
+        final File dir = this.directory;
+        if (dir == null || this.staleRepos.contains(repo.getId())) {
+            return null;
+        }
+        if (!this.synchronizedRepos.contains(repo.getId())
+                && !new File(dir, repo.getId() + SYNCHRONIZED_MARKER_EXTENSION).exists()) {
+            return null;
+        }
+        try {
+            return SVNURL.fromFile(new File(dir, repo.getId()));
+        } catch (final SVNException e) {
+            Logger.warn("invalid svn mirror location for " + repo, e);
+            return null;
+        }
+    }
+
+    /**
+     * Brings the local mirror of the given repository up to date, creating it if necessary.
+     * The mirror always contains the whole repository, so that paths and revisions are the same as in the
+     * original repository.
+     */
+    public void synchronize(final SvnRepo repo) throws SVNException {
+        final File dir = this.directory;
+        final SVNClientManager syncMgr = this.mgr;
+        if (dir == null || syncMgr == null) {
+            return;
+        }
+        synchronized (this.synchronizationLock) {
+            final File mirrorDir = new File(dir, repo.getId());
+            try {
+                if (!mirrorDir.exists()) {
+                    createMirror(syncMgr, repo, dir, mirrorDir);
+                }
+                syncMgr.getAdminClient().doSynchronize(SVNURL.fromFile(mirrorDir));
+            } catch (final SVNException | RuntimeException e) {
+                this.staleRepos.add(repo.getId());
+                throw e;
+            }
+            this.staleRepos.remove(repo.getId());
+        }
+        if (this.synchronizedRepos.add(repo.getId())) {
+            try {
+                new File(dir, repo.getId() + SYNCHRONIZED_MARKER_EXTENSION).createNewFile();
+            } catch (final IOException e) {
+                Logger.warn("could not mark svn mirror of " + repo + " as synchronized", e);
+            }
+        }
+    }
+
+    /**
+     * Brings the local mirror of the given repository up to date if it is used for reading, i.e. if it has been
+     * synchronized completely before. The initial synchronization is left to the background job, as it can
+     * take long. Errors are only logged, the server is used instead of the mirror until the next successful
+     * synchronization.
+     */
+    public void synchronizeIfUsed(final SvnRepo repo) {
+        if (this.getMirrorUrl(repo) == null) {
+            return;
+        }
+        try {
+            this.synchronize(repo);
+        } catch (final SVNException | RuntimeException e) {
+            Logger.warn("could not synchronize svn mirror of " + repo + ", using the server instead", e);
+        }
+    }
+
+    /**
+     * Creates and initializes the mirror in a temporary directory first, so that an interrupted
+     * initialization does not leave an unusable mirror behind.
+     */
+    private static void createMirror(
+            final SVNClientManager syncMgr, final SvnRepo repo, final File dir, final File mirrorDir)
+        throws SVNException {
+        final File tmpDir = new File(dir, repo.getId() + TEMP_EXTENSION);
+        SVNFileUtil.deleteAll(tmpDir, true);
+        //the mirror gets the same UUID as the original, so that cached data can be shared
+        final SVNURL tmpUrl = SVNRepositoryFactory.createLocalRepository(tmpDir, repo.getId(), true, false);
+        syncMgr.getAdminClient().doInitialize(repo.getRemoteUrl(), tmpUrl);
+        if (!tmpDir.renameTo(mirrorDir)) {
+            throw new ReviewtoolException("could not create svn mirror in " + mirrorDir);
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.regex.Pattern;
+
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+import org.tmatesoft.svn.core.wc.SVNInfo;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+
+import de.setsoftware.reviewtool.base.Logger;
+
+/**
+ * Provides access to the pristine store of a working copy. The pristine store contains the unmodified base text
+ * of every file in the working copy, in a file named after the SHA-1 checksum of the text. Reading the base text
+ * from there avoids fetching it from the server.
+ */
+final class SvnPristineStore {
+
+    private static final Pattern SHA1_CHECKSUM = Pattern.compile("[0-9a-f]{40}");
+
+    private SvnPristineStore() {
+    }
+
+    /**
+     * Returns the base contents of the given file in the working copy, or null if they cannot be read from the
+     * pristine store (for example because the working copy uses an older format).
+     */
+    public static byte[] readBaseContents(final SVNClientManager mgr, final File localFile) {
+        try {
+            final SVNInfo info = mgr.getWCClient().doInfo(localFile, SVNRevision.WORKING);
+            final String checksum = info.getChecksum();
+            if (checksum == null || info.getWorkingCopyRoot() == null || !SHA1_CHECKSUM.matcher(checksum).matches()) {
+                return null;
+            }
+            final File pristineDirectory = new File(new File(info.getWorkingCopyRoot(), ".svn"), "pristine");
+            final File pristineFile = new File(
+                    new File(pristineDirectory, checksum.substring(0, 2)), checksum + ".svn-base");
+            if (!pristineFile.isFile()) {
+                return null;
+            }
+            return Files.readAllBytes(pristineFile.toPath());
+        } catch (final SVNException | IOException e) {
+            Logger.debug("could not read base of " + localFile + " from pristine store: " + e);
+            return null;
+        }
+    }
+
+}
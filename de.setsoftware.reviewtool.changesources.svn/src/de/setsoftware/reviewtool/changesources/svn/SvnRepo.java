@@ -4,11 +4,14 @@ import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.Map;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.wc.SVNClientManager;
 
+import de.setsoftware.reviewtool.base.Pair;
 import de.setsoftware.reviewtool.model.api.IRepoRevision;
 import de.setsoftware.reviewtool.model.api.IRevision;
 import de.setsoftware.reviewtool.model.changestructure.AbstractRepository;
@@ -45,6 +48,15 @@ public class SvnRepo extends AbstractRepository {
         return this.remoteUrl;
     }
 
+    /**
+     * Returns the URL to use for reading from the repository. This is the URL of the local mirror
+     * if there is a usable one (see {@link SvnMirror}) and the remote URL otherwise.
+     */
+    public SVNURL getAccessUrl() {
+        final SVNURL mirrorUrl = SvnMirror.getInstance().getMirrorUrl(this);
+        return mirrorUrl != null ? mirrorUrl : this.remoteUrl;
+    }
+
     @Override
     public String getId() {
         return this.id;
@@ -89,6 +101,35 @@ public class SvnRepo extends AbstractRepository {
         return this.fileCache.getFileContents(path, (Long) revision.getId());
     }
 
+    /**
+     * Loads the contents of the given file revisions concurrently, so that later calls to
+     * {@link #getFileContents(String, IRepoRevision)} for them are served from the cache.
+     * Files larger than the given size or with a binary MIME type are not loaded, see
+     * {@link #isKnownToBeBinary(String, IRepoRevision)}.
+     * @param files Pairs of file path and file revision.
+     * @param maxTextSize The maximal size of files that can be diffed textually.
+     */
+    public void prefetchFileContents(
+            final Collection<Pair<String, Long>> files, final long maxTextSize, final IProgressMonitor ui) {
+        this.fileCache.prefetch(files, maxTextSize, ui);
+    }
+
+    /**
+     * Returns true iff it is known without loading its contents that the given file has to be treated as binary.
+     */
+    public boolean isKnownToBeBinary(final String path, final IRepoRevision revision) {
+        return this.fileCache.isKnownToBeBinary(path, (Long) revision.getId());
+    }
+
+    /**
+     * Loads the contents of the given file revisions from the pristine store of the working copy, if possible.
+     * Subsequent calls to {@link #getFileContents(String, IRepoRevision)} for them don't need the server.
+     */
+    public void prefetchBaseContents(
+            final SVNClientManager mgr, final Map<Pair<String, Long>, File> baseFiles, final IProgressMonitor ui) {
+        this.fileCache.prefetchFromWorkingCopy(mgr, baseFiles, ui);
+    }
+
     private File combineWcRootAndSuffix(final Path p, int prefixLength) {
         return new File(this.workingCopyRoot, p.subpath(prefixLength, p.getNameCount()).toString());
     }
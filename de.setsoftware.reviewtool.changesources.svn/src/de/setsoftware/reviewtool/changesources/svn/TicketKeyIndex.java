@@ -0,0 +1,111 @@
+package de.setsoftware.reviewtool.changesources.svn;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index from the ticket keys mentioned in log messages to the revisions of these log entries.
+ *
+ * <p>All substrings of the form "PROJECT-123" are indexed, including those that are part of a longer word
+ * (for "XABC-12", "ABC-12", "BC-12" and "C-12" are indexed, too). A lookup returns all revisions with an indexed
+ * key that starts with the given key. Therefore every log message that contains the key as a substring is found,
+ * and the index can be used to narrow down the log entries that have to be checked against the log message
+ * pattern. The lookup can return entries that do not match the pattern, so the pattern still has to be checked.
+ */
+final class TicketKeyIndex {
+
+    private static final Pattern INDEXABLE_KEY = Pattern.compile("[A-Za-z][A-Za-z0-9_]*-[0-9]+");
+    private static final Pattern KEY_IN_MESSAGE = Pattern.compile("([A-Za-z0-9_]+)-([0-9]+)");
+
+    private final TreeMap<String, long[]> revisionsPerKey = new TreeMap<>();
+
+    /**
+     * Returns true iff the given ticket key can be looked up in the index.
+     */
+    public static boolean isIndexable(final String key) {
+        return INDEXABLE_KEY.matcher(key).matches();
+    }
+
+    /**
+     * Returns all keys of the given log message that are put into the index.
+     */
+    public static Set<String> extractKeys(final String message) {
+        if (message == null) {
+            return Collections.emptySet();
+        }
+        final Set<String> ret = new LinkedHashSet<>();
+        final Matcher matcher = KEY_IN_MESSAGE.matcher(message);
+        while (matcher.find()) {
+            final String project = matcher.group(1);
+            final String suffix = "-" + matcher.group(2);
+            for (int i = 0; i < project.length(); i++) {
+                if (Character.isLetter(project.charAt(i))) {
+                    ret.add(project.substring(i) + suffix);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Adds the keys from the message of the given log entry to the index.
+     */
+    public void add(final CachedLogEntry entry) {
+        for (final String key : extractKeys(entry.getMessage())) {
+            this.addRevisions(key, new long[] {entry.getRevision()});
+        }
+    }
+
+    /**
+     * Adds all entries of another index to this index.
+     */
+    public void addAll(final Map<String, long[]> revisionsPerKey) {
+        for (final Entry<String, long[]> e : revisionsPerKey.entrySet()) {
+            this.addRevisions(e.getKey(), e.getValue());
+        }
+    }
+
+    private void addRevisions(final String key, final long[] revisions) {
+        final long[] old = this.revisionsPerKey.get(key);
+        if (old == null) {
+            this.revisionsPerKey.put(key, revisions);
+        } else {
+            final long[] combined = Arrays.copyOf(old, old.length + revisions.length);
+            System.arraycopy(revisions, 0, combined, old.length, revisions.length);
+            this.revisionsPerKey.put(key, combined);
+        }
+    }
+
+    /**
+     * Returns the revisions of all log entries containing the given key.
+     * @pre {@link #isIndexable(String)} is true for the key.
+     */
+    public SortedSet<Long> lookup(final String key) {
+        assert isIndexable(key);
+        final SortedSet<Long> ret = new TreeSet<>();
+        for (final long[] revisions : this.revisionsPerKey.subMap(key, key + Character.MAX_VALUE).values()) {
+            for (final long revision : revisions) {
+                ret.add(revision);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the content of this index as an unmodifiable map.
+     */
+    public SortedMap<String, long[]> getRevisionsPerKey() {
+        return Collections.unmodifiableSortedMap(this.revisionsPerKey);
+    }
+
+}
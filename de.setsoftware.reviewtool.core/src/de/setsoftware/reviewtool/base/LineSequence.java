@@ -4,6 +4,8 @@ import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -28,14 +30,27 @@ public class LineSequence {
     }
 
     /**
-     * Constructor which loads the lines from a byte array.
-     * @param contents The byte array holding the line data.
+     * Constructor which loads the lines from scanned bytes.
+     * @param contents The scanned bytes holding the line data.
      * @param charset The character set to use for the conversion from bytes to characters.
      * @throws IOException if some I/O error occurs.
      */
-    public LineSequence(byte[] contents, String charset) throws IOException {
+    public LineSequence(ScannedText contents, String charset) throws IOException {
         this();
-        final BufferedReader r = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(contents), charset));
+        final Charset cs;
+        try {
+            cs = Charset.forName(charset);
+        } catch (final IllegalArgumentException e) {
+            throw new UnsupportedEncodingException(charset);
+        }
+        if (ScannedText.isAsciiCompatible(cs)) {
+            for (int i = 0; i < contents.getLineCount(); i++) {
+                this.addLine(contents.getLine(i, cs) + '\n');
+            }
+            return;
+        }
+        final BufferedReader r = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(contents.getContent()), cs));
         String line;
         while ((line = r.readLine()) != null) {
             this.addLine(line + '\n');
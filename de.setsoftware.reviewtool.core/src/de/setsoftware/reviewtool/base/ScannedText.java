@@ -0,0 +1,217 @@
+package de.setsoftware.reviewtool.base;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The result of a single pass over the bytes of a text file: the start and end of each line, a hash of each line
+ * and whether the bytes are valid UTF-8. Strings are only created when a line is requested explicitly.
+ *
+ * <p>Lines are terminated by "\n", "\r" or "\r\n", like in {@link java.io.BufferedReader#readLine()}. As the line
+ * terminators are searched on the byte level, this only works for charsets that are compatible with ASCII
+ * (see {@link #isAsciiCompatible(Charset)}).
+ */
+public final class ScannedText {
+
+    private static final String ASCII_PROBE = "\r\n\t azAZ09{}";
+
+    private final byte[] content;
+    private final int lineCount;
+    private final int[] lineStarts;
+    private final int[] lineEnds;
+    private final int[] lineHashes;
+    private final boolean validUtf8;
+
+    private ScannedText(
+            byte[] content, int lineCount, int[] lineStarts, int[] lineEnds, int[] lineHashes, boolean validUtf8) {
+        this.content = content;
+        this.lineCount = lineCount;
+        this.lineStarts = lineStarts;
+        this.lineEnds = lineEnds;
+        this.lineHashes = lineHashes;
+        this.validUtf8 = validUtf8;
+    }
+
+    /**
+     * Scans the given bytes.
+     */
+    public static ScannedText scan(byte[] content) {
+        return scanPrefix(content, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Scans the given bytes, but stops after the given number of lines. The result only contains these lines,
+     * and {@link #isValidUtf8()} only refers to them.
+     */
+    public static ScannedText scanPrefix(byte[] content, int maxLineCount) {
+        int capacity = Math.min(content.length / 32 + 16, maxLineCount);
+        int[] lineStarts = new int[capacity];
+        int[] lineEnds = new int[capacity];
+        int[] lineHashes = new int[capacity];
+        int lineCount = 0;
+
+        boolean valid = true;
+        int remainingContinuationBytes = 0;
+        int lowerBound = 0x80;
+        int upperBound = 0xBF;
+
+        int lineStart = 0;
+        int hash = 0;
+        int i = 0;
+        while (i < content.length && lineCount < maxLineCount) {
+            final int b = content[i] & 0xFF;
+            if (valid) {
+                if (remainingContinuationBytes > 0) {
+                    if (b < lowerBound || b > upperBound) {
+                        valid = false;
+                    } else {
+                        remainingContinuationBytes--;
+                        lowerBound = 0x80;
+                        upperBound = 0xBF;
+                    }
+                } else if (b >= 0x80) {
+                    remainingContinuationBytes = determineContinuationBytes(b);
+                    if (remainingContinuationBytes < 0) {
+                        valid = false;
+                    }
+                    lowerBound = b == 0xE0 ? 0xA0 : (b == 0xF0 ? 0x90 : 0x80);
+                    upperBound = b == 0xED ? 0x9F : (b == 0xF4 ? 0x8F : 0xBF);
+                }
+            }
+
+            if (b == '\n' || b == '\r') {
+                if (lineCount == capacity) {
+                    capacity *= 2;
+                    lineStarts = Arrays.copyOf(lineStarts, capacity);
+                    lineEnds = Arrays.copyOf(lineEnds, capacity);
+                    lineHashes = Arrays.copyOf(lineHashes, capacity);
+                }
+                lineStarts[lineCount] = lineStart;
+                lineEnds[lineCount] = i;
+                lineHashes[lineCount] = hash;
+                lineCount++;
+                if (b == '\r' && i + 1 < content.length && content[i + 1] == '\n') {
+                    i++;
+                }
+                lineStart = i + 1;
+                hash = 0;
+            } else {
+                hash = 31 * hash + b;
+            }
+            i++;
+        }
+        if (lineStart < content.length && lineCount < maxLineCount) {
+            if (lineCount == capacity) {
+                capacity++;
+                lineStarts = Arrays.copyOf(lineStarts, capacity);
+                lineEnds = Arrays.copyOf(lineEnds, capacity);
+                lineHashes = Arrays.copyOf(lineHashes, capacity);
+            }
+            lineStarts[lineCount] = lineStart;
+            lineEnds[lineCount] = content.length;
+            lineHashes[lineCount] = hash;
+            lineCount++;
+        }
+
+        return new ScannedText(
+                content, lineCount, lineStarts, lineEnds, lineHashes, valid && remainingContinuationBytes == 0);
+    }
+
+    /**
+     * Returns the number of continuation bytes that have to follow the given lead byte (>= 0x80) in valid
+     * UTF-8, or -1 if the byte is not a valid lead byte.
+     */
+    private static int determineContinuationBytes(int leadByte) {
+        if (leadByte >= 0xC2 && leadByte <= 0xDF) {
+            return 1;
+        } else if (leadByte >= 0xE0 && leadByte <= 0xEF) {
+            return 2;
+        } else if (leadByte >= 0xF0 && leadByte <= 0xF4) {
+            return 3;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the scanned bytes.
+     */
+    public byte[] getContent() {
+        return this.content;
+    }
+
+    /**
+     * Returns true iff the scanned bytes are syntactically valid UTF-8 (no overlong encodings, no surrogates,
+     * no code points above U+10FFFF).
+     */
+    public boolean isValidUtf8() {
+        return this.validUtf8;
+    }
+
+    /**
+     * Returns true iff the line terminators and ASCII characters are encoded as single bytes with their
+     * ASCII values in the given charset, so that the text can be scanned on the byte level.
+     */
+    public static boolean isAsciiCompatible(Charset charset) {
+        return Arrays.equals(
+                ASCII_PROBE.getBytes(charset),
+                ASCII_PROBE.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public int getLineCount() {
+        return this.lineCount;
+    }
+
+    /**
+     * Returns a hash of the bytes of the line with the given index (starting at zero), without the terminator.
+     */
+    public int getLineHash(int lineIndex) {
+        return this.lineHashes[lineIndex];
+    }
+
+    /**
+     * Returns true iff the line with the given index has the same bytes as the given line of the other text.
+     */
+    public boolean lineEquals(int lineIndex, ScannedText other, int otherLineIndex) {
+        if (this.lineHashes[lineIndex] != other.lineHashes[otherLineIndex]) {
+            return false;
+        }
+        final int length = this.lineEnds[lineIndex] - this.lineStarts[lineIndex];
+        if (length != other.lineEnds[otherLineIndex] - other.lineStarts[otherLineIndex]) {
+            return false;
+        }
+        final int start = this.lineStarts[lineIndex];
+        final int otherStart = other.lineStarts[otherLineIndex];
+        for (int i = 0; i < length; i++) {
+            if (this.content[start + i] != other.content[otherStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes of the line with the given index (starting at zero), without the terminator.
+     */
+    public int getLineLength(int lineIndex) {
+        return this.lineEnds[lineIndex] - this.lineStarts[lineIndex];
+    }
+
+    /**
+     * Returns the byte at the given offset in the line with the given index (both starting at zero).
+     */
+    public byte getLineByte(int lineIndex, int offset) {
+        return this.content[this.lineStarts[lineIndex] + offset];
+    }
+
+    /**
+     * Decodes the line with the given index (starting at zero). The line terminator is not contained in
+     * the result.
+     */
+    public String getLine(int lineIndex, Charset charset) {
+        final int start = this.lineStarts[lineIndex];
+        return new String(this.content, start, this.lineEnds[lineIndex] - start, charset);
+    }
+
+}
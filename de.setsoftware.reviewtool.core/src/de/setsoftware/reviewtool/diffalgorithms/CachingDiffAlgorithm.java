@@ -0,0 +1,128 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.setsoftware.reviewtool.base.Pair;
+import de.setsoftware.reviewtool.base.ScannedText;
+import de.setsoftware.reviewtool.model.api.IFragment;
+import de.setsoftware.reviewtool.model.api.IPositionInText;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
+
+/**
+ * Decorator for a diff algorithm that looks up the result in the {@link DiffResultCache} first and stores
+ * computed results in it. On a cache hit, the file contents are neither decoded nor diffed.
+ */
+class CachingDiffAlgorithm implements IDiffAlgorithm {
+
+    private static final int INTS_PER_PAIR = 8;
+
+    private final IDiffAlgorithm decorated;
+    private final String algorithmId;
+
+    /**
+     * Constructor.
+     * @param decorated The algorithm that computes the diff on a cache miss.
+     * @param algorithmId Identifies the algorithm and its version. Has to be changed whenever the algorithm is
+     *      changed in a way that changes its results.
+     */
+    CachingDiffAlgorithm(IDiffAlgorithm decorated, String algorithmId) {
+        this.decorated = decorated;
+        this.algorithmId = algorithmId;
+    }
+
+    String getAlgorithmId() {
+        return this.algorithmId;
+    }
+
+    @Override
+    public List<Pair<IFragment, IFragment>> determineDiff(
+            IRevisionedFile fileOldInfo,
+            byte[] fileOldContent,
+            IRevisionedFile fileNewInfo,
+            byte[] fileNewContent,
+            String charset) {
+
+        final DiffResultCache cache = DiffResultCache.getInstance();
+        if (!cache.isEnabled()) {
+            return this.decorated.determineDiff(fileOldInfo, fileOldContent, fileNewInfo, fileNewContent, charset);
+        }
+
+        final String key = DiffResultCache.determineKey(this.algorithmId, charset, fileOldContent, fileNewContent);
+        final int[] cached = cache.get(key);
+        if (cached != null) {
+            return toFragments(cached, fileOldInfo, fileNewInfo);
+        }
+        final List<Pair<IFragment, IFragment>> ret =
+                this.decorated.determineDiff(fileOldInfo, fileOldContent, fileNewInfo, fileNewContent, charset);
+        cache.put(key, toPositions(ret));
+        return ret;
+    }
+
+    /**
+     * Approximate results are not stored, so that the exact diff is tried again the next time.
+     */
+    @Override
+    public DiffResult determineDiff(
+            IRevisionedFile fileOldInfo,
+            ScannedText fileOldContent,
+            IRevisionedFile fileNewInfo,
+            ScannedText fileNewContent,
+            String charset,
+            DiffBudget budget) {
+
+        final DiffResultCache cache = DiffResultCache.getInstance();
+        if (!cache.isEnabled()) {
+            return this.decorated.determineDiff(
+                    fileOldInfo, fileOldContent, fileNewInfo, fileNewContent, charset, budget);
+        }
+
+        final String key = DiffResultCache.determineKey(
+                this.algorithmId, charset, fileOldContent.getContent(), fileNewContent.getContent());
+        final int[] cached = cache.get(key);
+        if (cached != null) {
+            return new DiffResult(toFragments(cached, fileOldInfo, fileNewInfo), false, 0, 0);
+        }
+        final DiffResult ret =
+                this.decorated.determineDiff(fileOldInfo, fileOldContent, fileNewInfo, fileNewContent, charset, budget);
+        if (!ret.isApproximate()) {
+            cache.put(key, toPositions(ret.getFragments()));
+        }
+        return ret;
+    }
+
+    private static int[] toPositions(List<Pair<IFragment, IFragment>> fragments) {
+        final int[] ret = new int[INTS_PER_PAIR * fragments.size()];
+        int i = 0;
+        for (final Pair<IFragment, IFragment> pair : fragments) {
+            i = store(ret, i, pair.getFirst().getFrom());
+            i = store(ret, i, pair.getFirst().getTo());
+            i = store(ret, i, pair.getSecond().getFrom());
+            i = store(ret, i, pair.getSecond().getTo());
+        }
+        return ret;
+    }
+
+    private static int store(int[] positions, int index, IPositionInText position) {
+        positions[index] = position.getLine();
+        positions[index + 1] = position.getColumn();
+        return index + 2;
+    }
+
+    private static List<Pair<IFragment, IFragment>> toFragments(
+            int[] positions, IRevisionedFile fileOldInfo, IRevisionedFile fileNewInfo) {
+        final List<Pair<IFragment, IFragment>> ret = new ArrayList<>();
+        for (int i = 0; i + INTS_PER_PAIR <= positions.length; i += INTS_PER_PAIR) {
+            ret.add(Pair.create(
+                    ChangestructureFactory.createFragment(fileOldInfo,
+                            ChangestructureFactory.createPositionInText(positions[i], positions[i + 1]),
+                            ChangestructureFactory.createPositionInText(positions[i + 2], positions[i + 3])),
+                    ChangestructureFactory.createFragment(fileNewInfo,
+                            ChangestructureFactory.createPositionInText(positions[i + 4], positions[i + 5]),
+                            ChangestructureFactory.createPositionInText(positions[i + 6], positions[i + 7]))));
+        }
+        return ret;
+    }
+
+}
@@ -0,0 +1,62 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import de.setsoftware.reviewtool.config.IConfigurator;
+import de.setsoftware.reviewtool.config.IReviewConfigurable;
+
+/**
+ * Configures the diff algorithms returned by {@link DiffAlgorithmFactory#createDefault()}, the budget
+ * returned by {@link DiffAlgorithmFactory#getDefaultBudget()} and the maximal size of the diff result cache.
+ * Example:
+ * <pre>
+ * &lt;diffAlgorithm default="myers" largeFiles="histogram"
+ *         largeFileThreshold="4194304" maxEstimatedCost="100000000"
+ *         maxSteps="10000" maxMillis="5000" maxCacheSize="67108864"&gt;
+ *   &lt;fileType suffix=".xml" algorithm="histogram"/&gt;
+ * &lt;/diffAlgorithm&gt;
+ * </pre>
+ */
+public class DiffAlgorithmConfigurator implements IConfigurator {
+
+    @Override
+    public Collection<String> getRelevantElementNames() {
+        return Collections.singletonList("diffAlgorithm");
+    }
+
+    @Override
+    public void configure(Element xml, IReviewConfigurable configurable) {
+        final DispatchingDiffAlgorithm algorithm = new DispatchingDiffAlgorithm(
+                DiffAlgorithmFactory.createByName(getAttribute(xml, "default", "myers")),
+                DiffAlgorithmFactory.createByName(getAttribute(xml, "largeFiles", "histogram")),
+                Long.parseLong(getAttribute(xml, "largeFileThreshold",
+                        Long.toString(DiffAlgorithmFactory.DEFAULT_LARGE_FILE_THRESHOLD))),
+                Long.parseLong(getAttribute(xml, "maxEstimatedCost",
+                        Long.toString(DiffAlgorithmFactory.DEFAULT_MAX_ESTIMATED_COST))));
+        final NodeList fileTypes = xml.getElementsByTagName("fileType");
+        for (int i = 0; i < fileTypes.getLength(); i++) {
+            final Element fileType = (Element) fileTypes.item(i);
+            algorithm.addAlgorithmForSuffix(
+                    fileType.getAttribute("suffix"),
+                    DiffAlgorithmFactory.createByName(fileType.getAttribute("algorithm")));
+        }
+        DiffAlgorithmFactory.setDefault(algorithm);
+        DiffAlgorithmFactory.setDefaultBudget(new DiffBudget(
+                Long.parseLong(getAttribute(xml, "maxSteps",
+                        Long.toString(DiffAlgorithmFactory.DEFAULT_MAX_STEPS))),
+                Long.parseLong(getAttribute(xml, "maxMillis",
+                        Long.toString(DiffAlgorithmFactory.DEFAULT_MAX_MILLIS)))));
+        DiffAlgorithmFactory.setCacheMaxSize(Long.parseLong(getAttribute(xml, "maxCacheSize",
+                Long.toString(DiffResultCache.DEFAULT_MAX_SIZE))));
+    }
+
+    private static String getAttribute(Element xml, String name, String defaultValue) {
+        final String value = xml.getAttribute(name);
+        return value.isEmpty() ? defaultValue : value;
+    }
+
+}
@@ -1,5 +1,9 @@
 package de.setsoftware.reviewtool.diffalgorithms;
 
+import java.io.File;
+
+import de.setsoftware.reviewtool.base.ReviewtoolException;
+
 /**
  * A factory for diff algorithms.
  * Allows the change sources to be decoupled from the concrete diff algorithm used.
@@ -7,10 +11,137 @@ package de.setsoftware.reviewtool.diffalgorithms;
 public class DiffAlgorithmFactory {
 
     /**
-     * Creates the default diff algorithm.
+     * Default for the total size of both files in bytes above which the algorithm for large files is used.
+     */
+    static final long DEFAULT_LARGE_FILE_THRESHOLD = 4L * 1024 * 1024;
+
+    /**
+     * Default for the estimated cost above which the algorithm for large files is used.
+     */
+    static final long DEFAULT_MAX_ESTIMATED_COST = 100000000L;
+
+    /**
+     * Default for the maximal number of steps of the diff search, see {@link DiffBudget}.
+     */
+    static final long DEFAULT_MAX_STEPS = 10000L;
+
+    /**
+     * Default for the maximal time for a single diff, in milliseconds.
+     */
+    static final long DEFAULT_MAX_MILLIS = 5000L;
+
+    /**
+     * Version of the diff algorithms, part of the key for cached diff results. Has to be incremented when
+     * a change to an algorithm or its post processing changes the results.
+     */
+    private static final int ALGORITHM_VERSION = 5;
+
+    private static volatile IDiffAlgorithm defaultAlgorithm = createBuiltinDefault();
+
+    private static volatile DiffBudget defaultBudget = createBuiltinDefaultBudget();
+
+    /**
+     * Returns the default diff algorithm. Unless configured otherwise, it uses the Myers algorithm for
+     * normal files and the histogram algorithm for large files and files with many changes.
      */
     public static IDiffAlgorithm createDefault() {
-        return new MyersSourceDiffAlgorithm();
+        return defaultAlgorithm;
+    }
+
+    /**
+     * Sets the algorithm returned by {@link #createDefault()}.
+     */
+    public static void setDefault(IDiffAlgorithm algorithm) {
+        defaultAlgorithm = algorithm;
+    }
+
+    /**
+     * Returns the budget that should be used for diffs that are part of a larger computation, so that a single
+     * pathological file does not block it.
+     */
+    public static DiffBudget getDefaultBudget() {
+        return defaultBudget;
+    }
+
+    /**
+     * Sets the budget returned by {@link #getDefaultBudget()}.
+     */
+    public static void setDefaultBudget(DiffBudget budget) {
+        defaultBudget = budget;
+    }
+
+    /**
+     * Resets the algorithm returned by {@link #createDefault()} and the budget returned by
+     * {@link #getDefaultBudget()} to the built-in defaults.
+     */
+    public static void resetDefault() {
+        defaultAlgorithm = createBuiltinDefault();
+        defaultBudget = createBuiltinDefaultBudget();
+    }
+
+    /**
+     * Sets the directory in which diff results are cached. When it is null, nothing is cached.
+     */
+    public static void setCacheDirectory(File directory) {
+        DiffResultCache.getInstance().setDirectory(directory);
+    }
+
+    /**
+     * Sets the maximal total size in bytes of the cached diff results. When it is exceeded, the least
+     * recently used results are deleted.
+     */
+    public static void setCacheMaxSize(long maxSize) {
+        DiffResultCache.getInstance().setMaxSize(maxSize);
+    }
+
+    private static IDiffAlgorithm cached(IDiffAlgorithm algorithm, String name) {
+        return new CachingDiffAlgorithm(algorithm, name + "/" + ALGORITHM_VERSION);
+    }
+
+    private static DiffBudget createBuiltinDefaultBudget() {
+        return new DiffBudget(DEFAULT_MAX_STEPS, DEFAULT_MAX_MILLIS);
+    }
+
+    private static IDiffAlgorithm createBuiltinDefault() {
+        return new DispatchingDiffAlgorithm(
+                createByName("myers"),
+                createHistogram(),
+                DEFAULT_LARGE_FILE_THRESHOLD,
+                DEFAULT_MAX_ESTIMATED_COST);
+    }
+
+    /**
+     * Creates a diff algorithm that always uses the linear space variant of the Myers algorithm, on regions
+     * between unique anchor lines that are diffed in parallel. It is chosen automatically by the Myers
+     * algorithm for large files, but can also be useful for files with many differences.
+     */
+    public static IDiffAlgorithm createLinearSpaceMyers() {
+        return cached(new MyersSourceDiffAlgorithm(0), "linearSpaceMyers");
+    }
+
+    /**
+     * Creates a diff algorithm based on histogram diff. It is nearly linear for large files with few changes.
+     */
+    public static IDiffAlgorithm createHistogram() {
+        return cached(new HistogramSourceDiffAlgorithm(), "histogram");
+    }
+
+    /**
+     * Creates the diff algorithm with the given name ("myers", "linearSpaceMyers", "histogram" or "simple").
+     */
+    public static IDiffAlgorithm createByName(String name) {
+        switch (name) {
+        case "myers":
+            return cached(new MyersSourceDiffAlgorithm(), "myers");
+        case "linearSpaceMyers":
+            return createLinearSpaceMyers();
+        case "histogram":
+            return createHistogram();
+        case "simple":
+            return cached(new SimpleSourceDiffAlgorithm(), "simple");
+        default:
+            throw new ReviewtoolException("unknown diff algorithm: " + name);
+        }
     }
 
 }
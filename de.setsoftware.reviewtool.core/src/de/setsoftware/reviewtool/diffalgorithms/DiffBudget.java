@@ -0,0 +1,48 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+/**
+ * Limits the cost of a diff computation. The cost is counted in steps of the search (for the Myers algorithms,
+ * a step is one round of the search, so the number of steps is roughly the number of differences) and in
+ * elapsed time. When one of the limits is exceeded, the diff algorithms switch to a cheaper heuristic and
+ * flag the result as approximate.
+ */
+public final class DiffBudget {
+
+    private static final DiffBudget UNLIMITED = new DiffBudget(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final long maxSteps;
+    private final long maxMillis;
+
+    public DiffBudget(long maxSteps, long maxMillis) {
+        this.maxSteps = maxSteps;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * Returns a budget that is never exceeded.
+     */
+    public static DiffBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    public long getMaxSteps() {
+        return this.maxSteps;
+    }
+
+    public long getMaxMillis() {
+        return this.maxMillis;
+    }
+
+    /**
+     * Starts the tracking of the cost for a single diff computation.
+     */
+    DiffCostCounter start() {
+        return new DiffCostCounter(this.maxSteps, this.maxMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "DiffBudget(" + this.maxSteps + " steps, " + this.maxMillis + " ms)";
+    }
+
+}
@@ -0,0 +1,15 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+/**
+ * Thrown by {@link DiffCostCounter} to abort a diff computation that exceeded its {@link DiffBudget}.
+ * It is caught inside the diff algorithms, which then fall back to a cheaper heuristic.
+ */
+final class DiffBudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 4625185014528760128L;
+
+    DiffBudgetExceededException(long steps) {
+        super("diff budget exceeded after " + steps + " steps");
+    }
+
+}
@@ -0,0 +1,47 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the cost of a single diff computation and aborts it with a {@link DiffBudgetExceededException}
+ * when the {@link DiffBudget} is exceeded. Can be shared by threads that diff parts of the same files.
+ */
+final class DiffCostCounter {
+
+    private final long maxSteps;
+    private final long maxNanos;
+    private final long startTime;
+    private final AtomicLong steps = new AtomicLong();
+
+    DiffCostCounter(long maxSteps, long maxMillis) {
+        this.maxSteps = maxSteps;
+        this.maxNanos = maxMillis >= Long.MAX_VALUE / 1000000 ? Long.MAX_VALUE : maxMillis * 1000000;
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * Returns a counter that never aborts the computation.
+     */
+    static DiffCostCounter unlimited() {
+        return DiffBudget.unlimited().start();
+    }
+
+    /**
+     * Adds the given number of steps and checks that neither the steps nor the time limit are exceeded.
+     */
+    void addSteps(long count) {
+        final long newSteps = this.steps.addAndGet(count);
+        if (newSteps > this.maxSteps || System.nanoTime() - this.startTime > this.maxNanos) {
+            throw new DiffBudgetExceededException(newSteps);
+        }
+    }
+
+    long getSteps() {
+        return this.steps.get();
+    }
+
+    long getElapsedMillis() {
+        return (System.nanoTime() - this.startTime) / 1000000;
+    }
+
+}
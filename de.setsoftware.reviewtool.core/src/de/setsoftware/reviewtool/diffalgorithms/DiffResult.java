@@ -0,0 +1,61 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.util.List;
+
+import de.setsoftware.reviewtool.base.Pair;
+import de.setsoftware.reviewtool.model.api.IFragment;
+
+/**
+ * The result of a diff computation with a {@link DiffBudget}: The change fragments, whether they are only
+ * an approximation because the budget was exceeded, and the cost of the computation.
+ */
+public final class DiffResult {
+
+    private final List<Pair<IFragment, IFragment>> fragments;
+    private final boolean approximate;
+    private final long steps;
+    private final long millis;
+
+    /**
+     * Constructor.
+     * @param fragments The change fragments, in the format of
+     *      {@link IDiffAlgorithm#determineDiff(de.setsoftware.reviewtool.model.api.IRevisionedFile, byte[],
+     *      de.setsoftware.reviewtool.model.api.IRevisionedFile, byte[], String)}.
+     * @param approximate True iff the budget was exceeded and the fragments were determined heuristically.
+     * @param steps The number of steps of the search.
+     * @param millis The elapsed time in milliseconds.
+     */
+    public DiffResult(List<Pair<IFragment, IFragment>> fragments, boolean approximate, long steps, long millis) {
+        this.fragments = fragments;
+        this.approximate = approximate;
+        this.steps = steps;
+        this.millis = millis;
+    }
+
+    public List<Pair<IFragment, IFragment>> getFragments() {
+        return this.fragments;
+    }
+
+    /**
+     * Returns true iff the budget was exceeded and the result was determined heuristically. An approximate
+     * result is a valid diff, but can contain larger changes than necessary.
+     */
+    public boolean isApproximate() {
+        return this.approximate;
+    }
+
+    public long getSteps() {
+        return this.steps;
+    }
+
+    public long getMillis() {
+        return this.millis;
+    }
+
+    @Override
+    public String toString() {
+        return (this.approximate ? "approximate " : "") + this.fragments
+            + " (" + this.steps + " steps, " + this.millis + " ms)";
+    }
+
+}
@@ -0,0 +1,260 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+import de.setsoftware.reviewtool.base.Logger;
+import de.setsoftware.reviewtool.base.ReviewtoolException;
+
+/**
+ * Stores diff results on disk, so that diffs of file contents that have already been diffed don't have to
+ * be computed again. The key is a SHA-1 hash of the algorithm id, the charset and both file contents.
+ * A result is stored as the line and column numbers of the fragment pairs, in a file per key.
+ *
+ * <p>The total size of the stored results is bounded. When it is exceeded, the least recently used results
+ * are deleted. The time of last use is stored as the modification time of the files, so that it is
+ * retained across restarts.
+ *
+ * <p>As long as no directory is set, nothing is cached.
+ */
+final class DiffResultCache {
+
+    /**
+     * Default for the maximal total size of the stored results in bytes.
+     */
+    static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Every file takes at least one block on disk. The sizes of the mostly small result files are rounded up
+     * to this size, so that the bound applies to the disk space that is really used.
+     */
+    private static final long BLOCK_SIZE = 4096;
+
+    private static final String TMP_FILE_EXTENSION = ".tmp";
+
+    private static final DiffResultCache INSTANCE = new DiffResultCache();
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final LinkedHashMap<String, Long> sizePerKeyInLruOrder = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile File directory;
+    private long totalSize;
+    private long maxSize = DEFAULT_MAX_SIZE;
+
+    private DiffResultCache() {
+    }
+
+    static DiffResultCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets the directory for the stored results and reads the results that are already contained in it.
+     */
+    synchronized void setDirectory(File directory) {
+        this.directory = directory;
+        this.sizePerKeyInLruOrder.clear();
+        this.totalSize = 0;
+        if (directory != null) {
+            this.readResultFiles(directory);
+            this.evictIfNecessary();
+        }
+    }
+
+    /**
+     * Changes the maximal total size of the stored results.
+     */
+    synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        this.evictIfNecessary();
+    }
+
+    boolean isEnabled() {
+        return this.directory != null;
+    }
+
+    private void readResultFiles(File dir) {
+        final File[] subdirectories = dir.listFiles();
+        if (subdirectories == null) {
+            return;
+        }
+        final List<File> resultFiles = new ArrayList<>();
+        for (final File subdirectory : subdirectories) {
+            final File[] files = subdirectory.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (final File file : files) {
+                if (file.getName().endsWith(TMP_FILE_EXTENSION)) {
+                    //left over from an interrupted put
+                    if (!file.delete()) {
+                        Logger.debug("could not delete " + file);
+                    }
+                } else {
+                    resultFiles.add(file);
+                }
+            }
+        }
+        Collections.sort(resultFiles, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return Long.compare(o1.lastModified(), o2.lastModified());
+            }
+        });
+        for (final File file : resultFiles) {
+            this.add(file.getName(), file.length());
+        }
+    }
+
+    /**
+     * Determines the cache key for the given data.
+     */
+    static String determineKey(String algorithmId, String charset, byte[] fileOldContent, byte[] fileNewContent) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new ReviewtoolException(e);
+        }
+        digest.update(algorithmId.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(charset.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(ByteBuffer.allocate(4).putInt(fileOldContent.length).array());
+        digest.update(fileOldContent);
+        digest.update(fileNewContent);
+
+        final StringBuilder ret = new StringBuilder();
+        for (final byte b : digest.digest()) {
+            ret.append(String.format("%02x", b & 0xFF));
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Returns the stored positions for the given key (old from line, old from column, old to line,
+     * old to column, and the same for new, for every fragment pair), or null if there are none.
+     */
+    int[] get(String key) {
+        final File file;
+        synchronized (this) {
+            file = this.getFile(key);
+            if (file == null || this.sizePerKeyInLruOrder.get(key) == null) {
+                return null;
+            }
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            final int[] ret = new int[in.readInt()];
+            for (int i = 0; i < ret.length; i++) {
+                ret[i] = in.readInt();
+            }
+            if (!file.setLastModified(System.currentTimeMillis())) {
+                Logger.debug("could not update access time of " + file);
+            }
+            return ret;
+        } catch (final FileNotFoundException e) {
+            //the file has been evicted concurrently
+            return null;
+        } catch (final IOException e) {
+            Logger.warn("could not read cached diff " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the given positions (see {@link #get(String)}) for the given key.
+     */
+    void put(String key, int[] positions) {
+        final File file = this.getFile(key);
+        if (file == null) {
+            return;
+        }
+        try {
+            file.getParentFile().mkdirs();
+            final File tmp = File.createTempFile(key, TMP_FILE_EXTENSION, file.getParentFile());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(positions.length);
+                for (final int position : positions) {
+                    out.writeInt(position);
+                }
+            }
+            synchronized (this) {
+                if (!file.getParentFile().equals(this.getParentDirectory(key))) {
+                    //the directory has been changed in the meantime
+                    Files.delete(tmp.toPath());
+                    return;
+                }
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                this.add(key, file.length());
+                this.evictIfNecessary();
+            }
+        } catch (final IOException e) {
+            Logger.warn("could not store diff in cache " + file, e);
+        }
+    }
+
+    private void add(String key, long fileSize) {
+        final long size = (fileSize + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+        final Long oldSize = this.sizePerKeyInLruOrder.put(key, size);
+        this.totalSize += size - (oldSize == null ? 0 : oldSize);
+    }
+
+    private void evictIfNecessary() {
+        final Iterator<Entry<String, Long>> iter = this.sizePerKeyInLruOrder.entrySet().iterator();
+        while (this.totalSize > this.maxSize && iter.hasNext()) {
+            final Entry<String, Long> eldest = iter.next();
+            final File file = this.getFile(eldest.getKey());
+            if (!file.delete() && file.exists()) {
+                Logger.debug("could not delete " + file);
+                continue;
+            }
+            this.totalSize -= eldest.getValue();
+            iter.remove();
+        }
+    }
+
+    /**
+     * Returns the total size of the stored results, with the size of every result rounded up to whole blocks.
+     */
+    synchronized long getTotalSize() {
+        return this.totalSize;
+    }
+
+    private File getParentDirectory(String key) {
+        final File dir = this.directory;
+        if (dir == null) {
+            return null;
+        }
+        return new File(dir, key.substring(0, 2));
+    }
+
+    private File getFile(String key) {
+        final File parent = this.getParentDirectory(key);
+        return parent == null ? null : new File(parent, key);
+    }
+
+}
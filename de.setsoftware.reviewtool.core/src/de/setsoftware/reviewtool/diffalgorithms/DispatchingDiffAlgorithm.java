@@ -0,0 +1,117 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import de.setsoftware.reviewtool.base.Pair;
+import de.setsoftware.reviewtool.base.ScannedText;
+import de.setsoftware.reviewtool.model.api.IFragment;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+
+/**
+ * Chooses the diff algorithm to use for each pair of files. Algorithms can be configured for file name
+ * suffixes (e.g. ".xml"). For other files, the algorithm for large files is used when the files are large or
+ * the estimated cost of a diff is high, and the default algorithm otherwise.
+ *
+ * <p>The cost is estimated from the part of the files that is not contained in the common prefix and suffix,
+ * because the runtime of the Myers algorithm grows with the size of the files times the size of the differences.
+ */
+class DispatchingDiffAlgorithm implements IDiffAlgorithm {
+
+    /**
+     * Rough average number of bytes in a line, used to estimate line counts from the file sizes.
+     */
+    private static final int AVERAGE_LINE_LENGTH = 40;
+
+    private final IDiffAlgorithm defaultAlgorithm;
+    private final IDiffAlgorithm largeFileAlgorithm;
+    private final long largeFileThreshold;
+    private final long maxEstimatedCost;
+    private final Map<String, IDiffAlgorithm> algorithmsBySuffix = new LinkedHashMap<>();
+
+    /**
+     * Constructor.
+     * @param defaultAlgorithm The algorithm to use when no other rule applies.
+     * @param largeFileAlgorithm The algorithm to use for large files and for files with high estimated cost.
+     * @param largeFileThreshold Total size of both files in bytes above which the large file algorithm is used.
+     * @param maxEstimatedCost Estimated cost (lines in both files times lines in the changed part) above which
+     *      the large file algorithm is used.
+     */
+    DispatchingDiffAlgorithm(
+            IDiffAlgorithm defaultAlgorithm,
+            IDiffAlgorithm largeFileAlgorithm,
+            long largeFileThreshold,
+            long maxEstimatedCost) {
+        this.defaultAlgorithm = defaultAlgorithm;
+        this.largeFileAlgorithm = largeFileAlgorithm;
+        this.largeFileThreshold = largeFileThreshold;
+        this.maxEstimatedCost = maxEstimatedCost;
+    }
+
+    /**
+     * Uses the given algorithm for all files whose path ends with the given suffix.
+     */
+    void addAlgorithmForSuffix(String suffix, IDiffAlgorithm algorithm) {
+        this.algorithmsBySuffix.put(suffix, algorithm);
+    }
+
+    @Override
+    public List<Pair<IFragment, IFragment>> determineDiff(
+            IRevisionedFile fileOldInfo,
+            byte[] fileOldContent,
+            IRevisionedFile fileNewInfo,
+            byte[] fileNewContent,
+            String charset) {
+        return this.chooseAlgorithm(fileNewInfo.getPath(), fileOldContent, fileNewContent).determineDiff(
+                fileOldInfo, fileOldContent, fileNewInfo, fileNewContent, charset);
+    }
+
+    @Override
+    public DiffResult determineDiff(
+            IRevisionedFile fileOldInfo,
+            ScannedText fileOldContent,
+            IRevisionedFile fileNewInfo,
+            ScannedText fileNewContent,
+            String charset,
+            DiffBudget budget) {
+        final IDiffAlgorithm algorithm = this.chooseAlgorithm(
+                fileNewInfo.getPath(), fileOldContent.getContent(), fileNewContent.getContent());
+        return algorithm.determineDiff(
+                fileOldInfo, fileOldContent, fileNewInfo, fileNewContent, charset, budget);
+    }
+
+    IDiffAlgorithm chooseAlgorithm(String path, byte[] fileOldContent, byte[] fileNewContent) {
+        for (final Entry<String, IDiffAlgorithm> e : this.algorithmsBySuffix.entrySet()) {
+            if (path.endsWith(e.getKey())) {
+                return e.getValue();
+            }
+        }
+        final long totalSize = (long) fileOldContent.length + fileNewContent.length;
+        if (totalSize > this.largeFileThreshold) {
+            return this.largeFileAlgorithm;
+        }
+        final long changedSize = totalSize - 2L * commonPrefixAndSuffixLength(fileOldContent, fileNewContent);
+        final long estimatedCost = (totalSize / AVERAGE_LINE_LENGTH) * (changedSize / AVERAGE_LINE_LENGTH);
+        if (estimatedCost > this.maxEstimatedCost) {
+            return this.largeFileAlgorithm;
+        }
+        return this.defaultAlgorithm;
+    }
+
+    private static int commonPrefixAndSuffixLength(byte[] content1, byte[] content2) {
+        final int max = Math.min(content1.length, content2.length);
+        int prefixLength = 0;
+        while (prefixLength < max && content1[prefixLength] == content2[prefixLength]) {
+            prefixLength++;
+        }
+        int suffixLength = 0;
+        while (suffixLength < max - prefixLength
+                && content1[content1.length - 1 - suffixLength] == content2[content2.length - 1 - suffixLength]) {
+            suffixLength++;
+        }
+        return prefixLength + suffixLength;
+    }
+
+}
@@ -0,0 +1,190 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.util.Arrays;
+
+/**
+ * Histogram diff, an extension of patience diff: In each region, the longest common run of lines that
+ * contains the line with the least occurrences in the old file is used as an anchor, and the regions
+ * before and after the anchor are diffed in the same way. When no line occurs rarely enough to be used as
+ * an anchor, the region is diffed with {@link LinearSpaceMyersDiff}, or, when the fallback is switched off,
+ * treated as replaced as a whole.
+ *
+ * <p>For large files with few changes, this is nearly linear in the file size. The result is not necessarily
+ * minimal, but often looks more natural than a minimal diff because it tends to align unique lines.
+ */
+public class HistogramDiff {
+
+    /**
+     * Lines occurring more often than this in a region are not used as anchors.
+     */
+    private static final int MAX_CHAIN_LENGTH = 64;
+
+    private int[] oldIds;
+    private int[] newIds;
+    private int[] matchingNew;
+    private int[] counts;
+    private int[] lastOccurrence;
+    private int[] previousOccurrence;
+    private final DiffCostCounter costCounter;
+    private final boolean diffRegionsWithoutAnchor;
+
+    public HistogramDiff() {
+        this(DiffCostCounter.unlimited(), true);
+    }
+
+    /**
+     * Constructor.
+     * @param costCounter Counts every region as a step, and the steps of {@link LinearSpaceMyersDiff} for
+     *      regions without anchor.
+     * @param diffRegionsWithoutAnchor If false, regions without an anchor are not diffed, but treated as
+     *      replaced as a whole. The result is not minimal, but is determined in nearly linear time.
+     */
+    HistogramDiff(DiffCostCounter costCounter, boolean diffRegionsWithoutAnchor) {
+        this.costCounter = costCounter;
+        this.diffRegionsWithoutAnchor = diffRegionsWithoutAnchor;
+    }
+
+    /**
+     * Computes a diffpath that expresses the differences between the original and revised sequences.
+     *
+     * @param orig The original sequence.
+     * @param rev The revised sequence.
+     * @return A {@link PathNode Path} across the differences graph.
+     */
+    public PathNode buildPath(final OneFileView<String> orig, final OneFileView<String> rev) {
+        return this.buildPath(InternedLines.create(orig, rev));
+    }
+
+    /**
+     * Computes the diffpath for the given interned lines.
+     */
+    PathNode buildPath(final InternedLines lines) {
+        this.oldIds = lines.getOldIds();
+        this.newIds = lines.getNewIds();
+        this.matchingNew = new int[this.oldIds.length];
+        Arrays.fill(this.matchingNew, -1);
+        this.counts = new int[lines.getIdCount()];
+        this.lastOccurrence = new int[lines.getIdCount()];
+        Arrays.fill(this.lastOccurrence, -1);
+        this.previousOccurrence = new int[this.oldIds.length];
+
+        final int suffixLength = LinearSpaceMyersDiff.stripCommonSuffix(this.oldIds, this.newIds, this.matchingNew);
+        final int endOld = this.oldIds.length - suffixLength;
+        final int endNew = this.newIds.length - suffixLength;
+
+        //the regions are handled with an explicit stack, recursion could get too deep for large files
+        int[] stack = new int[64];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        stack[stackSize++] = endOld;
+        stack[stackSize++] = 0;
+        stack[stackSize++] = endNew;
+        while (stackSize > 0) {
+            final int regionEndNew = stack[--stackSize];
+            final int regionStartNew = stack[--stackSize];
+            final int regionEndOld = stack[--stackSize];
+            final int regionStartOld = stack[--stackSize];
+            final int[] anchor = this.diffRegion(regionStartOld, regionEndOld, regionStartNew, regionEndNew);
+            if (anchor == null) {
+                continue;
+            }
+            if (stackSize + 8 > stack.length) {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+            }
+            stack[stackSize++] = anchor[0];
+            stack[stackSize++] = anchor[1];
+            stack[stackSize++] = anchor[2];
+            stack[stackSize++] = anchor[3];
+            stack[stackSize++] = anchor[4];
+            stack[stackSize++] = anchor[5];
+            stack[stackSize++] = anchor[6];
+            stack[stackSize++] = anchor[7];
+        }
+
+        return LinearSpaceMyersDiff.toPath(this.matchingNew, this.oldIds.length, this.newIds.length);
+    }
+
+    /**
+     * Determines the matching lines in the given region. When an anchor was found, the remaining regions
+     * before and after it are returned (start old, end old, start new, end new for each), otherwise null.
+     */
+    private int[] diffRegion(int startOld, int endOld, int startNew, int endNew) {
+        this.costCounter.addSteps(1);
+        while (startOld < endOld && startNew < endNew && this.oldIds[startOld] == this.newIds[startNew]) {
+            this.matchingNew[startOld++] = startNew++;
+        }
+        while (startOld < endOld && startNew < endNew && this.oldIds[endOld - 1] == this.newIds[endNew - 1]) {
+            this.matchingNew[--endOld] = --endNew;
+        }
+        if (startOld == endOld || startNew == endNew) {
+            return null;
+        }
+
+        for (int i = startOld; i < endOld; i++) {
+            final int id = this.oldIds[i];
+            this.counts[id]++;
+            this.previousOccurrence[i] = this.lastOccurrence[id];
+            this.lastOccurrence[id] = i;
+        }
+
+        int bestRank = MAX_CHAIN_LENGTH;
+        int bestStartOld = 0;
+        int bestStartNew = 0;
+        int bestLength = 0;
+        int j = startNew;
+        while (j < endNew) {
+            int nextJ = j + 1;
+            final int id = this.newIds[j];
+            if (this.counts[id] > 0 && this.counts[id] <= bestRank) {
+                for (int i = this.lastOccurrence[id]; i >= 0; i = this.previousOccurrence[i]) {
+                    int s = i;
+                    int t = j;
+                    while (s > startOld && t > startNew && this.oldIds[s - 1] == this.newIds[t - 1]) {
+                        s--;
+                        t--;
+                    }
+                    int e = i + 1;
+                    int f = j + 1;
+                    while (e < endOld && f < endNew && this.oldIds[e] == this.newIds[f]) {
+                        e++;
+                        f++;
+                    }
+                    int rank = this.counts[id];
+                    for (int k = s; k < e; k++) {
+                        rank = Math.min(rank, this.counts[this.oldIds[k]]);
+                    }
+                    if (rank < bestRank || (rank == bestRank && e - s > bestLength)) {
+                        bestRank = rank;
+                        bestStartOld = s;
+                        bestStartNew = t;
+                        bestLength = e - s;
+                    }
+                    nextJ = Math.max(nextJ, f);
+                }
+            }
+            j = nextJ;
+        }
+
+        for (int i = startOld; i < endOld; i++) {
+            this.counts[this.oldIds[i]] = 0;
+            this.lastOccurrence[this.oldIds[i]] = -1;
+        }
+
+        if (bestLength == 0) {
+            if (this.diffRegionsWithoutAnchor) {
+                LinearSpaceMyersDiff.diffRegion(this.oldIds, this.newIds, this.matchingNew,
+                        startOld, endOld, startNew, endNew, this.costCounter);
+            }
+            return null;
+        }
+
+        for (int i = 0; i < bestLength; i++) {
+            this.matchingNew[bestStartOld + i] = bestStartNew + i;
+        }
+        return new int[] {
+            startOld, bestStartOld, startNew, bestStartNew,
+            bestStartOld + bestLength, endOld, bestStartNew + bestLength, endNew
+        };
+    }
+
+}
@@ -0,0 +1,14 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+/**
+ * Performs a line-based {@link HistogramDiff} and postprocesses the result in the same way as
+ * {@link MyersSourceDiffAlgorithm}.
+ */
+class HistogramSourceDiffAlgorithm extends MyersSourceDiffAlgorithm {
+
+    @Override
+    PathNode buildPath(InternedLines lines, DiffCostCounter costCounter) {
+        return new HistogramDiff(costCounter, true).buildPath(lines);
+    }
+
+}
@@ -3,6 +3,7 @@ package de.setsoftware.reviewtool.diffalgorithms;
 import java.util.List;
 
 import de.setsoftware.reviewtool.base.Pair;
+import de.setsoftware.reviewtool.base.ScannedText;
 import de.setsoftware.reviewtool.model.api.IFragment;
 import de.setsoftware.reviewtool.model.api.IRevisionedFile;
 
@@ -24,4 +25,18 @@ public interface IDiffAlgorithm {
             byte[] fileNewContent,
             String charset);
 
+    /**
+     * Determines a diff like {@link #determineDiff(IRevisionedFile, byte[], IRevisionedFile, byte[], String)},
+     * but with limited cost: When the given budget is exceeded, a cheaper heuristic is used and the result
+     * is flagged as approximate. The contents are passed already scanned, so that callers that need the scan
+     * anyway (e.g. to guess the encoding) don't have to scan them a second time.
+     */
+    public abstract DiffResult determineDiff(
+            IRevisionedFile fileOldInfo,
+            ScannedText fileOldContent,
+            IRevisionedFile fileNewInfo,
+            ScannedText fileNewContent,
+            String charset,
+            DiffBudget budget);
+
 }
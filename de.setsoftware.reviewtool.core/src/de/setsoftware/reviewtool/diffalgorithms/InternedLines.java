@@ -0,0 +1,139 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import de.setsoftware.reviewtool.base.ScannedText;
+
+/**
+ * The lines of two files, mapped to dense integer ids. Equal lines get the same id, so that the diff algorithms
+ * only have to compare ints. For every id, the {@link StartLineSuitability} is determined once while interning,
+ * so that the post processing only has to look it up.
+ */
+final class InternedLines {
+
+    private final int[] oldIds;
+    private final int[] newIds;
+    private final short[] suitabilities;
+
+    private InternedLines(int[] oldIds, int[] newIds, short[] suitabilities) {
+        this.oldIds = oldIds;
+        this.newIds = newIds;
+        this.suitabilities = suitabilities;
+    }
+
+    /**
+     * Interns the lines of both files. When both files were scanned on the byte level, the lines are compared
+     * by their bytes, without decoding them.
+     */
+    static InternedLines create(OneFileView<String> orig, OneFileView<String> rev) {
+        if (orig instanceof ScannedFileView && rev instanceof ScannedFileView) {
+            return createFromBytes(((ScannedFileView) orig).getText(), ((ScannedFileView) rev).getText());
+        }
+        final Map<String, Integer> ids = new HashMap<>();
+        final int[] oldIds = intern(orig, ids);
+        final int[] newIds = intern(rev, ids);
+        final short[] suitabilities = new short[ids.size()];
+        for (final Entry<String, Integer> e : ids.entrySet()) {
+            suitabilities[e.getValue()] = StartLineSuitability.determineFor(e.getKey());
+        }
+        return new InternedLines(oldIds, newIds, suitabilities);
+    }
+
+    private static int[] intern(OneFileView<String> file, Map<String, Integer> ids) {
+        final int[] ret = new int[file.getItemCount()];
+        for (int i = 0; i < ret.length; i++) {
+            final String line = file.getItem(i);
+            Integer id = ids.get(line);
+            if (id == null) {
+                id = ids.size();
+                ids.put(line, id);
+            }
+            ret[i] = id;
+        }
+        return ret;
+    }
+
+    /**
+     * Interns the lines with an open addressing hash table that contains the ids. For each id, the
+     * text and line index of its first occurrence is remembered to compare it with other lines.
+     */
+    private static InternedLines createFromBytes(ScannedText oldText, ScannedText newText) {
+        final int totalLines = oldText.getLineCount() + newText.getLineCount();
+        int tableSize = 16;
+        while (tableSize < 2 * totalLines) {
+            tableSize *= 2;
+        }
+        final int[] table = new int[tableSize];
+        final ScannedText[] firstText = new ScannedText[totalLines];
+        final int[] firstLine = new int[totalLines];
+        final int[] idCount = new int[1];
+
+        final int[] oldIds = internBytes(oldText, table, firstText, firstLine, idCount);
+        final int[] newIds = internBytes(newText, table, firstText, firstLine, idCount);
+        final short[] suitabilities = new short[idCount[0]];
+        for (int id = 0; id < suitabilities.length; id++) {
+            suitabilities[id] = StartLineSuitability.determineFor(firstText[id], firstLine[id]);
+        }
+        return new InternedLines(oldIds, newIds, suitabilities);
+    }
+
+    private static int[] internBytes(
+            ScannedText text, int[] table, ScannedText[] firstText, int[] firstLine, int[] idCount) {
+        final int mask = table.length - 1;
+        final int[] ret = new int[text.getLineCount()];
+        for (int i = 0; i < ret.length; i++) {
+            int slot = mix(text.getLineHash(i)) & mask;
+            while (true) {
+                final int entry = table[slot];
+                if (entry == 0) {
+                    final int id = idCount[0]++;
+                    table[slot] = id + 1;
+                    firstText[id] = text;
+                    firstLine[id] = i;
+                    ret[i] = id;
+                    break;
+                }
+                if (text.lineEquals(i, firstText[entry - 1], firstLine[entry - 1])) {
+                    ret[i] = entry - 1;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        return ret;
+    }
+
+    private static int mix(int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    int[] getOldIds() {
+        return this.oldIds;
+    }
+
+    int[] getNewIds() {
+        return this.newIds;
+    }
+
+    int getIdCount() {
+        return this.suitabilities.length;
+    }
+
+    /**
+     * Returns the {@link StartLineSuitability} of the line with the given index in the old file.
+     */
+    short getSuitabilityOld(int lineIndex) {
+        return this.suitabilities[this.oldIds[lineIndex]];
+    }
+
+    /**
+     * Returns the {@link StartLineSuitability} of the line with the given index in the new file.
+     */
+    short getSuitabilityNew(int lineIndex) {
+        return this.suitabilities[this.newIds[lineIndex]];
+    }
+
+}
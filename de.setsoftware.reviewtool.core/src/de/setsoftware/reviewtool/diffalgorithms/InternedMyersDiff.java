@@ -0,0 +1,168 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.util.Arrays;
+
+/**
+ * Variant of {@link MyersDiff} that is optimized for large files. Before the search, every line of both files is
+ * mapped to a dense integer id, so that the inner loop only compares ints instead of calling {@link String#equals}.
+ * The search itself only stores the furthest reaching x position per diagonal and round in a flat int array.
+ * The {@link PathNode}s are created afterwards, when backtracking from the end, so that there is only one node per
+ * diff or snake instead of one per step.
+ *
+ * <p>The resulting path is exactly the same as the one determined by {@link MyersDiff}, unless there are so many
+ * differences that the search is delegated to {@link LinearSpaceMyersDiff}.
+ */
+public class InternedMyersDiff {
+
+    /**
+     * The trace needs d * (d + 1) / 2 ints for d differences. When this limit would be exceeded, the
+     * {@link LinearSpaceMyersDiff} is used instead, as it does not need to keep all rounds in memory.
+     */
+    private static final int MAX_TRACE_SIZE = 1 << 24;
+
+    private final DiffCostCounter costCounter;
+
+    public InternedMyersDiff() {
+        this(DiffCostCounter.unlimited());
+    }
+
+    /**
+     * Constructor.
+     * @param costCounter Counts every round of the search as a step.
+     */
+    InternedMyersDiff(DiffCostCounter costCounter) {
+        this.costCounter = costCounter;
+    }
+
+    /**
+     * Computes the minimum diffpath that expresses the differences between the original and revised sequences.
+     *
+     * @param orig The original sequence.
+     * @param rev The revised sequence.
+     * @return A minimum {@link PathNode Path} across the differences graph.
+     */
+    public PathNode buildPath(final OneFileView<String> orig, final OneFileView<String> rev) {
+        return this.buildPath(InternedLines.create(orig, rev));
+    }
+
+    /**
+     * Computes the diffpath for the given interned lines.
+     */
+    PathNode buildPath(final InternedLines lines) {
+        final int[] a = lines.getOldIds();
+        final int[] b = lines.getNewIds();
+
+        final int commonSuffixLength = determineCommonSuffixLength(a, b);
+        final int n = a.length - commonSuffixLength;
+        final int m = b.length - commonSuffixLength;
+
+        final int max = n + m + 1;
+        final int offset = max + 1;
+        final int[] v = new int[2 * max + 3];
+        int[] trace = new int[64];
+        int traceSize = 0;
+
+        v[offset + 1] = 0;
+        for (int d = 0; d < max; d++) {
+            this.costCounter.addSteps(1);
+            for (int k = -d; k <= d; k += 2) {
+                int i;
+                if ((k == -d) || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    i = v[offset + k + 1];
+                } else {
+                    i = v[offset + k - 1] + 1;
+                }
+                int j = i - k;
+                while (i < n && j < m && a[i] == b[j]) {
+                    i++;
+                    j++;
+                }
+                v[offset + k] = i;
+
+                if (i >= n && j >= m) {
+                    return addCommonSuffixSnake(backtrack(trace, d, k, i), commonSuffixLength);
+                }
+            }
+
+            if (traceSize + d + 1 > trace.length) {
+                if (traceSize + d + 1 > MAX_TRACE_SIZE) {
+                    return new LinearSpaceMyersDiff(this.costCounter).buildPath(lines);
+                }
+                trace = Arrays.copyOf(trace, Math.min(MAX_TRACE_SIZE, Math.max(2 * trace.length, traceSize + d + 1)));
+            }
+            for (int k = -d; k <= d; k += 2) {
+                trace[traceSize++] = v[offset + k];
+            }
+        }
+        // According to Myers, this cannot happen
+        throw new Error("could not find a diff path");
+    }
+
+    /**
+     * Reconstructs the path that ended in round d on diagonal k at x position endX.
+     */
+    private static PathNode backtrack(final int[] trace, final int dEnd, final int kEnd, final int endXEnd) {
+        final int[] editEnds = new int[dEnd + 1];
+        final int[] snakeEnds = new int[dEnd + 1];
+        final int[] diagonals = new int[dEnd + 1];
+
+        int k = kEnd;
+        int endX = endXEnd;
+        for (int d = dEnd; d > 0; d--) {
+            final int roundStart = (d - 1) * d / 2;
+            final int prevK;
+            if ((k == -d) || (k != d && traceValue(trace, roundStart, d - 1, k - 1)
+                    < traceValue(trace, roundStart, d - 1, k + 1))) {
+                prevK = k + 1;
+                editEnds[d] = traceValue(trace, roundStart, d - 1, prevK);
+            } else {
+                prevK = k - 1;
+                editEnds[d] = traceValue(trace, roundStart, d - 1, prevK) + 1;
+            }
+            snakeEnds[d] = endX;
+            diagonals[d] = k;
+            endX = traceValue(trace, roundStart, d - 1, prevK);
+            k = prevK;
+        }
+
+        PathNode cur = new DiffNode(0, 0, null);
+        if (endX > 0) {
+            cur = new Snake(endX, endX, cur);
+        }
+        for (int d = 1; d <= dEnd; d++) {
+            final PathNode diff = new DiffNode(editEnds[d], editEnds[d] - diagonals[d], cur);
+            if (snakeEnds[d] > editEnds[d]) {
+                cur = new Snake(snakeEnds[d], snakeEnds[d] - diagonals[d], diff);
+            } else {
+                cur = diff;
+            }
+        }
+        return cur;
+    }
+
+    private static int traceValue(final int[] trace, final int roundStart, final int d, final int k) {
+        return trace[roundStart + (k + d) / 2];
+    }
+
+    private static PathNode addCommonSuffixSnake(final PathNode pathNode, final int commonSuffixLength) {
+        if (pathNode.isSnake()) {
+            pathNode.enlargeBy(commonSuffixLength);
+            return pathNode;
+        } else {
+            return new Snake(
+                    pathNode.getPosOld() + commonSuffixLength,
+                    pathNode.getPosNew() + commonSuffixLength,
+                    pathNode);
+        }
+    }
+
+    private static int determineCommonSuffixLength(final int[] a, final int[] b) {
+        int suffixLength = 0;
+        final int max = Math.min(a.length, b.length);
+        while (suffixLength < max && a[a.length - 1 - suffixLength] == b[b.length - 1 - suffixLength]) {
+            suffixLength++;
+        }
+        return suffixLength;
+    }
+
+}
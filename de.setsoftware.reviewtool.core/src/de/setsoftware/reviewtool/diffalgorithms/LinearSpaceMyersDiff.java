@@ -0,0 +1,224 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.util.Arrays;
+
+/**
+ * Linear space variant of the Myers differencing algorithm. The "middle snake" of the edit graph is determined
+ * by searching from both ends at the same time, and the parts before and after it are diffed recursively.
+ * Only two arrays of size O(N+M) are needed for the search, independent of the number of differences.
+ *
+ * <p>The resulting path is a minimal diff path in the same format as the one from {@link MyersDiff}, but
+ * when there are several minimal paths, a different one can be chosen.
+ */
+public class LinearSpaceMyersDiff {
+
+    private int[] oldIds;
+    private int[] newIds;
+    private int[] forward;
+    private int[] backward;
+    private int offset;
+    private int[] matchingNew;
+    private final DiffCostCounter costCounter;
+
+    public LinearSpaceMyersDiff() {
+        this(DiffCostCounter.unlimited());
+    }
+
+    /**
+     * Constructor.
+     * @param costCounter Counts every round of the search for a middle snake as a step.
+     */
+    LinearSpaceMyersDiff(DiffCostCounter costCounter) {
+        this.costCounter = costCounter;
+    }
+
+    /**
+     * Computes a minimum diffpath that expresses the differences between the original and revised sequences.
+     *
+     * @param orig The original sequence.
+     * @param rev The revised sequence.
+     * @return A minimum {@link PathNode Path} across the differences graph.
+     */
+    public PathNode buildPath(final OneFileView<String> orig, final OneFileView<String> rev) {
+        return this.buildPath(InternedLines.create(orig, rev));
+    }
+
+    /**
+     * Computes the diffpath for the given interned lines.
+     */
+    PathNode buildPath(final InternedLines lines) {
+        final int[] oldIds = lines.getOldIds();
+        final int[] newIds = lines.getNewIds();
+        final int[] matchingNew = new int[oldIds.length];
+        Arrays.fill(matchingNew, -1);
+
+        final int suffixLength = stripCommonSuffix(oldIds, newIds, matchingNew);
+        final int endOld = oldIds.length - suffixLength;
+        final int endNew = newIds.length - suffixLength;
+        diffRegion(oldIds, newIds, matchingNew, 0, endOld, 0, endNew, this.costCounter);
+        return toPath(matchingNew, oldIds.length, newIds.length);
+    }
+
+    /**
+     * Determines the matching lines in the given ranges (start inclusive, end exclusive) of the given
+     * interned files and stores them in matchingNew (index in old file to index in new file).
+     */
+    static void diffRegion(int[] oldIds, int[] newIds, int[] matchingNew,
+            int startOld, int endOld, int startNew, int endNew, DiffCostCounter costCounter) {
+        final LinearSpaceMyersDiff d = new LinearSpaceMyersDiff(costCounter);
+        d.oldIds = oldIds;
+        d.newIds = newIds;
+        d.matchingNew = matchingNew;
+        final int max = (endOld - startOld + endNew - startNew + 1) / 2 + 1;
+        d.offset = max + 1;
+        d.forward = new int[2 * max + 3];
+        d.backward = new int[2 * max + 3];
+        d.diff(startOld, endOld, startNew, endNew);
+    }
+
+    /**
+     * Determines the matching lines in the given ranges (start inclusive, end exclusive) and stores them
+     * in {@link #matchingNew}.
+     */
+    private void diff(int startOld, int endOld, int startNew, int endNew) {
+        while (startOld < endOld && startNew < endNew && this.oldIds[startOld] == this.newIds[startNew]) {
+            this.matchingNew[startOld++] = startNew++;
+        }
+        while (startOld < endOld && startNew < endNew && this.oldIds[endOld - 1] == this.newIds[endNew - 1]) {
+            this.matchingNew[--endOld] = --endNew;
+        }
+        if (startOld == endOld || startNew == endNew) {
+            return;
+        }
+
+        final int[] snake = this.findMiddleSnake(startOld, endOld, startNew, endNew);
+        this.diff(startOld, snake[0], startNew, snake[1]);
+        for (int i = snake[0]; i < snake[2]; i++) {
+            this.matchingNew[i] = snake[1] + i - snake[0];
+        }
+        this.diff(snake[2], endOld, snake[3], endNew);
+    }
+
+    /**
+     * Searches forward from the start and backward from the end of the given ranges until the furthest reaching
+     * paths overlap. Returns the start and end coordinates (old start, new start, old end, new end) of the
+     * snake in which this happens.
+     * The caller has to ensure that both ranges are non-empty and differ in the first and last item.
+     */
+    private int[] findMiddleSnake(int startOld, int endOld, int startNew, int endNew) {
+        final int n = endOld - startOld;
+        final int m = endNew - startNew;
+        final int delta = n - m;
+        final boolean deltaOdd = (delta & 1) != 0;
+        final int max = (n + m + 1) / 2;
+        final int o = this.offset;
+        final int[] vf = this.forward;
+        final int[] vb = this.backward;
+
+        vf[o + 1] = 0;
+        vb[o + 1] = 0;
+        for (int d = 0; d <= max; d++) {
+            this.costCounter.addSteps(1);
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && vf[o + k - 1] < vf[o + k + 1])) {
+                    x = vf[o + k + 1];
+                } else {
+                    x = vf[o + k - 1] + 1;
+                }
+                int y = x - k;
+                final int snakeStartX = x;
+                final int snakeStartY = y;
+                while (x < n && y < m && this.oldIds[startOld + x] == this.newIds[startNew + y]) {
+                    x++;
+                    y++;
+                }
+                vf[o + k] = x;
+                final int reverseK = delta - k;
+                if (deltaOdd && reverseK >= -(d - 1) && reverseK <= d - 1 && x + vb[o + reverseK] >= n) {
+                    return new int[] {
+                        startOld + snakeStartX, startNew + snakeStartY, startOld + x, startNew + y
+                    };
+                }
+            }
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && vb[o + k - 1] < vb[o + k + 1])) {
+                    x = vb[o + k + 1];
+                } else {
+                    x = vb[o + k - 1] + 1;
+                }
+                int y = x - k;
+                final int snakeStartX = x;
+                final int snakeStartY = y;
+                while (x < n && y < m && this.oldIds[endOld - 1 - x] == this.newIds[endNew - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                vb[o + k] = x;
+                final int forwardK = delta - k;
+                if (!deltaOdd && forwardK >= -d && forwardK <= d && x + vf[o + forwardK] >= n) {
+                    return new int[] {
+                        endOld - x, endNew - y, endOld - snakeStartX, endNew - snakeStartY
+                    };
+                }
+            }
+        }
+        // According to Myers, this cannot happen
+        throw new Error("could not find a middle snake");
+    }
+
+    /**
+     * Matches the common suffix of the given interned files and stores it in matchingNew (index in old file to
+     * index in new file). Returns the length of the suffix.
+     *
+     * <p>Like in {@link MyersDiff}, the common suffix is stripped before the rest is diffed, so that all engines
+     * have the same bias: When the last change could be placed at several positions, it ends up as far up as
+     * possible. The post processing in {@link MyersSourceDiffAlgorithm} relies on this bias, as it moves all
+     * changes upwards and only checks for the last change whether it should be moved downwards.
+     */
+    static int stripCommonSuffix(int[] oldIds, int[] newIds, int[] matchingNew) {
+        int endOld = oldIds.length;
+        int endNew = newIds.length;
+        while (endOld > 0 && endNew > 0 && oldIds[endOld - 1] == newIds[endNew - 1]) {
+            matchingNew[--endOld] = --endNew;
+        }
+        return oldIds.length - endOld;
+    }
+
+    /**
+     * Converts the given matching (index in old file to index in new file, -1 for unmatched lines)
+     * to a compressed path of {@link DiffNode}s and {@link Snake}s.
+     */
+    static PathNode toPath(int[] matchingNew, int oldLength, int newLength) {
+        PathNode cur = new DiffNode(0, 0, null);
+        int posOld = 0;
+        int posNew = 0;
+        int i = 0;
+        while (i < oldLength) {
+            if (matchingNew[i] < 0) {
+                i++;
+                continue;
+            }
+            final int snakeStartOld = i;
+            final int snakeStartNew = matchingNew[i];
+            while (i < oldLength && matchingNew[i] == snakeStartNew + i - snakeStartOld) {
+                i++;
+            }
+            if (snakeStartOld > posOld || snakeStartNew > posNew) {
+                cur = new DiffNode(snakeStartOld, snakeStartNew, cur);
+            }
+            posOld = i;
+            posNew = snakeStartNew + i - snakeStartOld;
+            cur = new Snake(posOld, posNew, cur);
+        }
+        if (posOld < oldLength || posNew < newLength) {
+            cur = new DiffNode(oldLength, newLength, cur);
+        }
+        if (!cur.isSnake()) {
+            cur = new Snake(oldLength, newLength, cur);
+        }
+        return cur;
+    }
+
+}
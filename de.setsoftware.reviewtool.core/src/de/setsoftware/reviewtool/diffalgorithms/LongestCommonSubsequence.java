@@ -1,208 +1,141 @@
 package de.setsoftware.reviewtool.diffalgorithms;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
-import de.setsoftware.reviewtool.base.Multiset;
-
 /**
  * Helper class containing the algorithm to calculate the longest common subsequence.
+ *
+ * <p>Uses the bit-parallel algorithm by Allison and Dix (in the formulation by Hyyrö): For each item of the
+ * shorter file, a column of the dynamic programming matrix is computed with a few word operations per 64 rows,
+ * one row per item of the longer file. Bit i of a column is 0 iff the LCS length increases in row i. The columns
+ * are kept to recover the alignment backwards from the end, which only needs single bit lookups.
  */
 class LongestCommonSubsequence {
 
-    private static final int CUTOFF_LIMIT = 1000000;
-
-    /**
-     * Helper class for making the recursive algorithm iterative.
-     */
-    private static class WorkItem {
-        private final int pos1;
-        private final int pos2;
-        private final int sum;
-
-        public WorkItem(int pos1, int pos2, int sum) {
-            this.pos1 = pos1;
-            this.pos2 = pos2;
-            this.sum = sum;
-        }
-
-        public WorkItem up() {
-            return new WorkItemU(this.pos1, this.pos2 - 1, this.sum + 1);
-        }
-
-        public WorkItem left() {
-            return new WorkItemL(this.pos1 - 1, this.pos2, this.sum + 1);
-        }
-
-        public WorkItem same() {
-            return new WorkItemS(this.pos1 - 1, this.pos2 - 1, this.sum);
-        }
-
-        public WorkItem diagonal() {
-            return new WorkItemD(this.pos1 - 1, this.pos2 - 1, this.sum + 1);
-        }
-
-        @Override
-        public int hashCode() {
-            return this.pos1 ^ Integer.reverseBytes(this.pos2);
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (!(o instanceof WorkItem)) {
-                return false;
-            }
-            final WorkItem w = (WorkItem) o;
-            return w.pos1 == this.pos1 && w.pos2 == this.pos2;
-        }
-    }
-
     /**
-     * An work item resulting from going to the left.
+     * Maximal number of cells (items in file 1 times items in file 2) for which the LCS is determined.
+     * The kept columns need one bit per cell, plus an array header per item of the shorter file. As the longer
+     * file is put on the bit vector axis, there are at most sqrt(CUTOFF_LIMIT) headers.
      */
-    private static class WorkItemL extends WorkItem {
-
-        public WorkItemL(int pos1, int pos2, int sum) {
-            super(pos1, pos2, sum);
-        }
-
-    }
+    private static final long CUTOFF_LIMIT = 1L << 28;
 
     /**
-     * An work item resulting from going up.
-     */
-    private static class WorkItemU extends WorkItem {
-
-        public WorkItemU(int pos1, int pos2, int sum) {
-            super(pos1, pos2, sum);
-        }
-
-    }
-
-    /**
-     * An work item resulting from going diagonal (with change).
+     * Determines the longest common subsequence between the given files and adds all matched
+     * lines to the given matching.
      */
-    private static class WorkItemD extends WorkItem {
-
-        public WorkItemD(int pos1, int pos2, int sum) {
-            super(pos1, pos2, sum);
+    public static<T> void determineLcs(OneFileView<T> file1, OneFileView<T> file2, ItemMatching<T> matching) {
+        if (file1.getItemCount() >= file2.getItemCount()) {
+            determineLcs(file1, file2, matching, false);
+        } else {
+            determineLcs(file2, file1, matching, true);
         }
-
     }
 
     /**
-     * An work item resulting from skipping an item that is the same on both sides (also going diagonal).
+     * Determines the longest common subsequence with the items of the given rows file on the bit vector axis.
+     * @param swapped True iff the rows file is file 2 and the columns file is file 1 of the matching.
      */
-    private static class WorkItemS extends WorkItem {
-
-        public WorkItemS(int pos1, int pos2, int sum) {
-            super(pos1, pos2, sum);
+    private static<T> void determineLcs(
+            OneFileView<T> rows, OneFileView<T> cols, ItemMatching<T> matching, boolean swapped) {
+        final int n = rows.getItemCount();
+        final int m = cols.getItemCount();
+        if (n == 0 || m == 0 || (long) n * m > CUTOFF_LIMIT) {
+            //nothing to match, or stopped for performance reasons
+            return;
         }
 
-    }
-
-    /**
-     * Determines the longest common subsequence between the given files and adds all matched
-     * lines to the given matching. Uses the simple dynamic programming algorithm with some
-     * additional pruning.
-     */
-    public static<T> void determineLcs(OneFileView<T> file1, OneFileView<T> file2, ItemMatching<T> matching) {
-        final List<WorkItem> workStack = new ArrayList<>();
-        final Map<WorkItem, WorkItem> bestSoFar = new HashMap<>();
-        int totalBestSum = Integer.MAX_VALUE;
-        final int bestPossibleResult = determineBestPossibleResult(file1, file2);
-
-        workStack.add(new WorkItem(file1.getItemCount(), file2.getItemCount(), 0));
-        while (!workStack.isEmpty()) {
-            final WorkItem cur = workStack.remove(workStack.size() - 1);
-
-            if (cur.sum >= totalBestSum) {
-                continue;
+        //intern the items of the rows file and chain the occurrences of each item
+        final Map<T, Integer> ids = new HashMap<>();
+        final int[] lastOccurrence = new int[n];
+        final int[] previousOccurrence = new int[n];
+        final int[] items1 = new int[n];
+        for (int i = 0; i < n; i++) {
+            Integer id = ids.get(rows.getItem(i));
+            if (id == null) {
+                id = ids.size();
+                ids.put(rows.getItem(i), id);
+                lastOccurrence[id] = -1;
             }
-
-            final WorkItem bestItemSoFar = bestSoFar.get(cur);
-            if (bestItemSoFar != null && bestItemSoFar.sum <= cur.sum) {
+            items1[i] = id;
+            previousOccurrence[i] = lastOccurrence[id];
+            lastOccurrence[id] = i;
+        }
+        final int[] items2 = new int[m];
+        for (int j = 0; j < m; j++) {
+            final Integer id = ids.get(cols.getItem(j));
+            items2[j] = id == null ? -1 : id;
+        }
+
+        final int words = (n + 63) >>> 6;
+        final long[][] columns = new long[m + 1][];
+        final long[] match = new long[words];
+        long[] v = new long[words];
+        Arrays.fill(v, -1L);
+        columns[0] = v;
+        for (int j = 0; j < m; j++) {
+            final int id = items2[j];
+            if (id < 0) {
+                //no matching item => column does not change
+                columns[j + 1] = v;
                 continue;
             }
-            bestSoFar.put(cur, cur);
-
-            if (cur.pos1 == 0) {
-                if (cur.pos2 == 0) {
-                    //new best result found
-                    totalBestSum = cur.sum;
-                    if (cur.sum == bestPossibleResult) {
-                        break;
-                    }
-                } else {
-                    workStack.add(cur.up());
-                }
-            } else if (cur.pos2 == 0) {
-                workStack.add(cur.left());
-            } else if (file1.getItem(cur.pos1 - 1).equals(file2.getItem(cur.pos2 - 1))) {
-                workStack.add(cur.same());
-            } else {
-                if (cur.pos1 == cur.pos2) {
-                    workStack.add(cur.left());
-                    workStack.add(cur.up());
-                    workStack.add(cur.diagonal());
-                } else if (cur.pos1 < cur.pos2) {
-                    workStack.add(cur.left());
-                    workStack.add(cur.diagonal());
-                    workStack.add(cur.up());
-                } else {
-                    workStack.add(cur.up());
-                    workStack.add(cur.diagonal());
-                    workStack.add(cur.left());
-                }
+            for (int i = lastOccurrence[id]; i >= 0; i = previousOccurrence[i]) {
+                match[i >>> 6] |= 1L << i;
             }
-
-            if (bestSoFar.size() > CUTOFF_LIMIT) {
-                break;
+            v = nextColumn(v, match);
+            columns[j + 1] = v;
+            for (int i = lastOccurrence[id]; i >= 0; i = previousOccurrence[i]) {
+                match[i >>> 6] = 0;
             }
         }
 
-        final WorkItem best = bestSoFar.get(new WorkItem(0, 0, 0));
-        if (best == null) {
-            //can happen if the calculation was stopped for performance reasons
-            return;
-        }
-
-        WorkItem cur = best;
-        while (true) {
-            if (cur instanceof WorkItemU) {
-                cur = bestSoFar.get(new WorkItem(cur.pos1, cur.pos2 + 1, 0));
-            } else if (cur instanceof WorkItemL) {
-                cur = bestSoFar.get(new WorkItem(cur.pos1 + 1, cur.pos2, 0));
-            } else if (cur instanceof WorkItemD) {
-                cur = bestSoFar.get(new WorkItem(cur.pos1 + 1, cur.pos2 + 1, 0));
-            } else if (cur instanceof WorkItemS) {
-                matching.match(file1, cur.pos1, file2, cur.pos2);
-                cur = bestSoFar.get(new WorkItem(cur.pos1 + 1, cur.pos2 + 1, 0));
+        int i = n;
+        int j = m;
+        while (i > 0 && j > 0) {
+            if (items1[i - 1] == items2[j - 1]) {
+                if (swapped) {
+                    matching.match(cols, j - 1, rows, i - 1);
+                } else {
+                    matching.match(rows, i - 1, cols, j - 1);
+                }
+                i--;
+                j--;
+            } else if ((columns[j][(i - 1) >>> 6] & (1L << (i - 1))) != 0) {
+                //the LCS length does not increase in row i => the same length is reachable from above
+                i--;
             } else {
-                break;
+                j--;
             }
         }
     }
 
-    private static<T> int determineBestPossibleResult(OneFileView<T> file1, OneFileView<T> file2) {
-        //the edit distance cannot be smaller than the difference between the larger file size
-        //  and the number of equal items
-        final Multiset<T> items1 = new Multiset<>();
-        for (int i = 0; i < file1.getItemCount(); i++) {
-            items1.add(file1.getItem(i));
-        }
-        int equalItemCount = 0;
-        for (int i = 0; i < file2.getItemCount(); i++) {
-            final T item = file2.getItem(i);
-            if (items1.contains(item)) {
-                equalItemCount++;
-                items1.remove(item);
-            }
+    /**
+     * Computes V' = (V + U) | (V - U) with U = V & M over multi word bit vectors.
+     */
+    private static long[] nextColumn(long[] v, long[] match) {
+        final long[] ret = new long[v.length];
+        long carry = 0;
+        long borrow = 0;
+        for (int w = 0; w < v.length; w++) {
+            final long u = v[w] & match[w];
+
+            final long sum1 = v[w] + u;
+            final long sum = sum1 + carry;
+            carry = (unsignedLess(sum1, v[w]) || unsignedLess(sum, sum1)) ? 1 : 0;
+
+            final long diff1 = v[w] - u;
+            final long diff = diff1 - borrow;
+            borrow = (unsignedLess(v[w], u) || unsignedLess(diff1, borrow)) ? 1 : 0;
+
+            ret[w] = sum | diff;
         }
+        return ret;
+    }
 
-        return Math.max(file1.getItemCount(), file2.getItemCount()) - equalItemCount;
+    private static boolean unsignedLess(long a, long b) {
+        return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
     }
 
 }
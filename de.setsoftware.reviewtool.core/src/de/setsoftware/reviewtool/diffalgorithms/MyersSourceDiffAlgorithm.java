@@ -1,15 +1,14 @@
 package de.setsoftware.reviewtool.diffalgorithms;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import de.setsoftware.reviewtool.base.Pair;
 import de.setsoftware.reviewtool.base.ReviewtoolException;
+import de.setsoftware.reviewtool.base.ScannedText;
 import de.setsoftware.reviewtool.model.api.IFragment;
 import de.setsoftware.reviewtool.model.api.IRevisionedFile;
 import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
@@ -19,33 +18,124 @@ import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
  */
 class MyersSourceDiffAlgorithm implements IDiffAlgorithm {
 
+    /**
+     * Default for the total number of lines in both files above which the linear space variant of the
+     * Myers algorithm is used, on regions between anchors that are diffed in parallel.
+     * For most changes, the post processed fragments are the same as with {@link InternedMyersDiff}. They can
+     * differ when there are several minimal diffs (repeated lines can be matched to another occurrence,
+     * a deleted line next to an inserted line can become a changed line), and when an anchor line
+     * moves past repeated lines, as the anchors are matched even if this prevents a minimal diff.
+     */
+    static final int DEFAULT_LINEAR_SPACE_THRESHOLD = 50000;
+
+    /**
+     * Total number of lines in both files above which everything between the common prefix and suffix
+     * is treated as replaced when the budget is exceeded. For smaller files, anchors are searched.
+     */
+    static final int WHOLE_FILE_REPLACEMENT_THRESHOLD = 200000;
+
+    private final int linearSpaceThreshold;
+
+    MyersSourceDiffAlgorithm() {
+        this(DEFAULT_LINEAR_SPACE_THRESHOLD);
+    }
+
+    /**
+     * Constructor.
+     * @param linearSpaceThreshold Total number of lines in both files above which {@link ParallelRegionDiff}
+     *      is used instead of {@link InternedMyersDiff}.
+     */
+    MyersSourceDiffAlgorithm(int linearSpaceThreshold) {
+        this.linearSpaceThreshold = linearSpaceThreshold;
+    }
+
     @Override
     public List<Pair<IFragment, IFragment>> determineDiff(IRevisionedFile fileOldInfo, byte[] fileOldContent,
             IRevisionedFile fileNewInfo, byte[] fileNewContent, String charset) {
+        return this.determineDiff(
+                fileOldInfo,
+                ScannedText.scan(fileOldContent),
+                fileNewInfo,
+                ScannedText.scan(fileNewContent),
+                charset,
+                DiffBudget.unlimited())
+            .getFragments();
+    }
 
-        final FullFileView<String> fileOld = this.toLines(fileOldContent, charset);
-        final FullFileView<String> fileNew = this.toLines(fileNewContent, charset);
-        final PathNode path = new MyersDiff().buildPath(fileOld, fileNew);
+    @Override
+    public DiffResult determineDiff(IRevisionedFile fileOldInfo, ScannedText fileOldContent,
+            IRevisionedFile fileNewInfo, ScannedText fileNewContent, String charset, DiffBudget budget) {
 
-        this.postprocessPath(path, fileOld, fileNew);
+        final DiffCostCounter costCounter = budget.start();
+        final OneFileView<String> fileOld = this.toLines(fileOldContent, charset);
+        final OneFileView<String> fileNew = this.toLines(fileNewContent, charset);
+        final InternedLines lines = InternedLines.create(fileOld, fileNew);
+        PathNode path;
+        boolean approximate;
+        try {
+            path = this.buildPath(lines, costCounter);
+            approximate = false;
+        } catch (final DiffBudgetExceededException e) {
+            path = buildApproximatePath(lines);
+            approximate = true;
+        }
+
+        this.postprocessPath(path, lines);
 
         final List<Pair<IFragment, IFragment>> fragments =
                 this.createFragmentsFromPath(path, fileOldInfo, fileOld, fileNewInfo, fileNew);
         Collections.reverse(fragments);
-        return fragments;
+        return new DiffResult(fragments, approximate, costCounter.getSteps(), costCounter.getElapsedMillis());
+    }
+
+    /**
+     * Determines the raw diff path that is post processed afterwards.
+     * Throws a {@link DiffBudgetExceededException} when the given counter's budget is exceeded.
+     */
+    PathNode buildPath(InternedLines lines, DiffCostCounter costCounter) {
+        if (lines.getOldIds().length + lines.getNewIds().length > this.linearSpaceThreshold) {
+            return new ParallelRegionDiff(costCounter, ParallelRegionDiff.DEFAULT_MIN_LINES_PER_TASK)
+                .buildPath(lines);
+        } else {
+            return new InternedMyersDiff(costCounter).buildPath(lines);
+        }
+    }
+
+    /**
+     * Determines a diff path without searching for a minimal diff, for use when the budget is exceeded.
+     * Regions between anchor lines are treated as replaced as a whole. For very large files, there is
+     * no search for anchors, and everything between the common prefix and suffix is treated as replaced.
+     */
+    static PathNode buildApproximatePath(InternedLines lines) {
+        final int[] oldIds = lines.getOldIds();
+        final int[] newIds = lines.getNewIds();
+        if (oldIds.length + newIds.length <= WHOLE_FILE_REPLACEMENT_THRESHOLD) {
+            return new HistogramDiff(DiffCostCounter.unlimited(), false).buildPath(lines);
+        }
+
+        final int[] matchingNew = new int[oldIds.length];
+        Arrays.fill(matchingNew, -1);
+        final int suffixLength = LinearSpaceMyersDiff.stripCommonSuffix(oldIds, newIds, matchingNew);
+        final int endOld = oldIds.length - suffixLength;
+        final int endNew = newIds.length - suffixLength;
+        int start = 0;
+        while (start < endOld && start < endNew && oldIds[start] == newIds[start]) {
+            matchingNew[start] = start;
+            start++;
+        }
+        return LinearSpaceMyersDiff.toPath(matchingNew, oldIds.length, newIds.length);
     }
 
-    private void postprocessPath(PathNode pathEnd, FullFileView<String> fileOld, FullFileView<String> fileNew) {
+    private void postprocessPath(PathNode pathEnd, InternedLines lines) {
         //the algorithm generally has a bias to start diffs too far downwards, so we try to move diffs
         //  upwards to make them look better to the human eye
-        this.makeBetterByMovingDiffsUpwards(pathEnd, fileNew);
+        this.makeBetterByMovingDiffsUpwards(pathEnd, lines);
         //the last diff can also be too far up due to stripping the common suffix, so check
         //  if it should be moved down
-        this.makeBetterByMovingLastDiffDownwards(pathEnd, fileOld, fileNew);
+        this.makeBetterByMovingLastDiffDownwards(pathEnd, lines);
     }
 
-    private void makeBetterByMovingLastDiffDownwards(
-            PathNode pathEnd, FullFileView<String> fileOld, FullFileView<String> fileNew) {
+    private void makeBetterByMovingLastDiffDownwards(PathNode pathEnd, InternedLines lines) {
         if (!pathEnd.isSnake()) {
             //already ends with a diff => cannot move down
             return;
@@ -58,26 +148,22 @@ class MyersSourceDiffAlgorithm implements IDiffAlgorithm {
             return;
         }
         int best = 0;
-        StartLineSuitability suitabilityOfBest;
+        short suitabilityOfBest;
         if (lastDiff.getLengthNew() > 0) {
-            suitabilityOfBest = StartLineSuitability.determineFor(
-                    fileNew.getItem(lastDiff.getStartPosNew() + best));
+            suitabilityOfBest = lines.getSuitabilityNew(lastDiff.getStartPosNew() + best);
         } else {
-            suitabilityOfBest = StartLineSuitability.determineFor(
-                    fileOld.getItem(lastDiff.getStartPosOld() + best));
+            suitabilityOfBest = lines.getSuitabilityOld(lastDiff.getStartPosOld() + best);
         }
         for (int move = 1;
-                move <= commonSuffixLength && this.canMoveDownwards(lastDiff, move, fileOld, fileNew);
+                move <= commonSuffixLength && this.canMoveDownwards(lastDiff, move, lines);
                 move++) {
-            final StartLineSuitability currentSuitability;
+            final short currentSuitability;
             if (lastDiff.getLengthNew() > 0) {
-                currentSuitability = StartLineSuitability.determineFor(
-                        fileNew.getItem(lastDiff.getStartPosNew() + move));
+                currentSuitability = lines.getSuitabilityNew(lastDiff.getStartPosNew() + move);
             } else {
-                currentSuitability = StartLineSuitability.determineFor(
-                        fileOld.getItem(lastDiff.getStartPosOld() + move));
+                currentSuitability = lines.getSuitabilityOld(lastDiff.getStartPosOld() + move);
             }
-            if (currentSuitability.compareTo(suitabilityOfBest) > 0) {
+            if (currentSuitability > suitabilityOfBest) {
                 best = move;
                 suitabilityOfBest = currentSuitability;
             }
@@ -88,18 +174,19 @@ class MyersSourceDiffAlgorithm implements IDiffAlgorithm {
         }
     }
 
-    private boolean canMoveDownwards(
-            PathNode cur, int stepsDownwards, FullFileView<String> fileOld, FullFileView<String> fileNew) {
+    private boolean canMoveDownwards(PathNode cur, int stepsDownwards, InternedLines lines) {
         assert !cur.isSnake();
         final int newPosOld = cur.getPosOld() + stepsDownwards - 1;
         final int newPosNew = cur.getPosNew() + stepsDownwards - 1;
+        final int[] oldIds = lines.getOldIds();
+        final int[] newIds = lines.getNewIds();
         //assumes that the caller has already checked that a move of this size is possible
-        return fileOld.getItem(newPosOld).equals(fileOld.getItem(newPosOld - cur.getLengthOld()))
-            && fileNew.getItem(newPosNew).equals(fileNew.getItem(newPosNew - cur.getLengthNew()));
+        return oldIds[newPosOld] == oldIds[newPosOld - cur.getLengthOld()]
+            && newIds[newPosNew] == newIds[newPosNew - cur.getLengthNew()];
     }
 
 
-    private void makeBetterByMovingDiffsUpwards(PathNode pathEnd, FullFileView<String> fileNew) {
+    private void makeBetterByMovingDiffsUpwards(PathNode pathEnd, InternedLines lines) {
         PathNode cur = pathEnd;
         while (cur != null) {
             if (cur.isSnake()) {
@@ -108,8 +195,8 @@ class MyersSourceDiffAlgorithm implements IDiffAlgorithm {
             }
 
             int best = 0;
-            for (int move = 1; this.canMoveUpwards(cur, move, fileNew); move++) {
-                if (this.isBetterStart(cur, move, best, fileNew)
+            for (int move = 1; this.canMoveUpwards(cur, move, lines); move++) {
+                if (this.isBetterStart(cur, move, best, lines)
                         || this.willJoinTwoDiffs(cur, move)) {
                     best = move;
                 }
@@ -133,22 +220,19 @@ class MyersSourceDiffAlgorithm implements IDiffAlgorithm {
         return cur.getPrev() != null && move == cur.getPrev().getLengthNew();
     }
 
-    private boolean canMoveUpwards(PathNode cur, int stepsUpwards, FullFileView<String> file) {
+    private boolean canMoveUpwards(PathNode cur, int stepsUpwards, InternedLines lines) {
         assert !cur.isSnake();
         final int newPos = cur.getPosNew() - stepsUpwards;
+        final int[] newIds = lines.getNewIds();
         return cur.getLengthOld() == 0 //currently only additions are supported
             && newPos >= cur.getLengthNew() //index will not become negative
             && (cur.getPrev() == null
                 || cur.getStartPosNew() - stepsUpwards >= cur.getPrev().getStartPosNew()) //no overlap previous snake
-            && file.getItem(newPos).equals(file.getItem(newPos - cur.getLengthNew()));
+            && newIds[newPos] == newIds[newPos - cur.getLengthNew()];
     }
 
-    private boolean isBetterStart(PathNode cur, int move, int best, FullFileView<String> fileNew) {
-        final StartLineSuitability suitabilityBest = StartLineSuitability.determineFor(
-                fileNew.getItem(cur.getPosNew() - best));
-        final StartLineSuitability suitabilityMove = StartLineSuitability.determineFor(
-                fileNew.getItem(cur.getPosNew() - move));
-        return suitabilityMove.compareTo(suitabilityBest) > 0;
+    private boolean isBetterStart(PathNode cur, int move, int best, InternedLines lines) {
+        return lines.getSuitabilityNew(cur.getPosNew() - move) > lines.getSuitabilityNew(cur.getPosNew() - best);
     }
 
     private List<Pair<IFragment, IFragment>> createFragmentsFromPath(PathNode pathEnd,
@@ -197,20 +281,40 @@ class MyersSourceDiffAlgorithm implements IDiffAlgorithm {
         return ret;
     }
 
-    private FullFileView<String> toLines(byte[] contents, String charset) {
+    /**
+     * Splits the given contents into lines. Like {@link java.io.BufferedReader#readLine()}, "\n", "\r" and
+     * "\r\n" are treated as line terminators and are not contained in the result.
+     * For the usual charsets, the lines of the scan are used and only decoded when needed.
+     */
+    private OneFileView<String> toLines(ScannedText contents, String charsetName) {
+        final Charset charset;
         try {
-            final BufferedReader r =
-                    new BufferedReader(new InputStreamReader(new ByteArrayInputStream(contents), charset));
-            final List<String> lines = new ArrayList<>();
-            String line;
-            while ((line = r.readLine()) != null) {
-                lines.add(line);
-            }
-            return new FullFileView<String>(lines.toArray(new String[lines.size()]));
-        } catch (final IOException e) {
-            // should not happen because reading from a byte buffer should not throw I/O exceptions
+            charset = Charset.forName(charsetName);
+        } catch (final IllegalArgumentException e) {
             throw new ReviewtoolException(e);
         }
+        if (ScannedText.isAsciiCompatible(charset)) {
+            return new ScannedFileView(contents, charset);
+        }
+
+        final String text = new String(contents.getContent(), charset);
+        final List<String> lines = new ArrayList<>();
+        final int length = text.length();
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            final char ch = text.charAt(i);
+            if (ch == '\n' || ch == '\r') {
+                lines.add(text.substring(lineStart, i));
+                if (ch == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < length) {
+            lines.add(text.substring(lineStart));
+        }
+        return new FullFileView<String>(lines.toArray(new String[lines.size()]));
     }
 
     private Pair<IFragment, IFragment> createInLineDiffFragment(
@@ -0,0 +1,242 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Diff for large files that splits the files into independent regions, which are diffed concurrently with
+ * {@link LinearSpaceMyersDiff}. After stripping the common suffix and prefix, the lines that occur exactly
+ * once in the remaining part of both files are candidates for anchors. The longest sequence of candidates that
+ * has the same order in both files (determined by patience sorting) is matched, and the regions between these
+ * anchors are diffed independently and stitched together afterwards.
+ *
+ * <p>The result is minimal within every region, but not necessarily for the whole file, as the anchors are
+ * matched even if a minimal diff would not match them. For large files with scattered edits, the wall time
+ * is roughly that of the largest region.
+ */
+public class ParallelRegionDiff {
+
+    /**
+     * Regions are combined into tasks with at least this many lines in total, so that the overhead per task
+     * stays small compared to the work.
+     */
+    static final int DEFAULT_MIN_LINES_PER_TASK = 2000;
+
+    /**
+     * Diffs a range of regions. The regions are given as start old, end old, start new and end new.
+     */
+    private final class RegionsAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 6042917385210284731L;
+
+        private final int[] regions;
+        private final int fromRegion;
+        private final int toRegion;
+
+        RegionsAction(int[] regions, int fromRegion, int toRegion) {
+            this.regions = regions;
+            this.fromRegion = fromRegion;
+            this.toRegion = toRegion;
+        }
+
+        @Override
+        protected void compute() {
+            for (int r = this.fromRegion; r < this.toRegion; r++) {
+                final int i = 4 * r;
+                LinearSpaceMyersDiff.diffRegion(ParallelRegionDiff.this.oldIds, ParallelRegionDiff.this.newIds,
+                        ParallelRegionDiff.this.matchingNew,
+                        this.regions[i], this.regions[i + 1], this.regions[i + 2], this.regions[i + 3],
+                        ParallelRegionDiff.this.costCounter);
+            }
+        }
+
+    }
+
+    private final DiffCostCounter costCounter;
+    private final int minLinesPerTask;
+    private int[] oldIds;
+    private int[] newIds;
+    private int[] matchingNew;
+
+    public ParallelRegionDiff() {
+        this(DiffCostCounter.unlimited(), DEFAULT_MIN_LINES_PER_TASK);
+    }
+
+    /**
+     * Constructor.
+     * @param costCounter Counts the steps of the diffs of all regions.
+     * @param minLinesPerTask Minimal number of lines in the regions of a task.
+     */
+    ParallelRegionDiff(DiffCostCounter costCounter, int minLinesPerTask) {
+        this.costCounter = costCounter;
+        this.minLinesPerTask = minLinesPerTask;
+    }
+
+    /**
+     * Computes a diffpath that expresses the differences between the original and revised sequences.
+     *
+     * @param orig The original sequence.
+     * @param rev The revised sequence.
+     * @return A {@link PathNode Path} across the differences graph.
+     */
+    public PathNode buildPath(final OneFileView<String> orig, final OneFileView<String> rev) {
+        return this.buildPath(InternedLines.create(orig, rev));
+    }
+
+    /**
+     * Computes the diffpath for the given interned lines.
+     */
+    PathNode buildPath(final InternedLines lines) {
+        this.oldIds = lines.getOldIds();
+        this.newIds = lines.getNewIds();
+        this.matchingNew = new int[this.oldIds.length];
+        Arrays.fill(this.matchingNew, -1);
+
+        final int suffixLength = LinearSpaceMyersDiff.stripCommonSuffix(this.oldIds, this.newIds, this.matchingNew);
+        final int endOld = this.oldIds.length - suffixLength;
+        final int endNew = this.newIds.length - suffixLength;
+        int start = 0;
+        while (start < endOld && start < endNew && this.oldIds[start] == this.newIds[start]) {
+            this.matchingNew[start] = start;
+            start++;
+        }
+
+        final int[] regions = this.splitAtAnchors(start, endOld, endNew, lines.getIdCount());
+        this.diffRegions(regions);
+        return LinearSpaceMyersDiff.toPath(this.matchingNew, this.oldIds.length, this.newIds.length);
+    }
+
+    /**
+     * Matches the anchors in the given ranges and returns the regions between them that still need to be
+     * diffed (start old, end old, start new, end new for each). Regions in which one side is empty are
+     * left out, as there is nothing to match in them.
+     */
+    private int[] splitAtAnchors(int start, int endOld, int endNew, int idCount) {
+        final int[] countOld = new int[idCount];
+        final int[] positionOld = new int[idCount];
+        for (int i = start; i < endOld; i++) {
+            countOld[this.oldIds[i]]++;
+            positionOld[this.oldIds[i]] = i;
+        }
+        final int[] countNew = new int[idCount];
+        for (int j = start; j < endNew; j++) {
+            countNew[this.newIds[j]]++;
+        }
+
+        //patience sorting: piles[p] is the candidate with the smallest old position that ends an increasing
+        //  sequence of length p + 1, predecessor links the candidates to reconstruct the longest sequence
+        final int[] candidateOld = new int[Math.min(endOld, endNew) - start];
+        final int[] candidateNew = new int[candidateOld.length];
+        final int[] predecessor = new int[candidateOld.length];
+        final int[] piles = new int[candidateOld.length];
+        int candidateCount = 0;
+        int pileCount = 0;
+        for (int j = start; j < endNew; j++) {
+            final int id = this.newIds[j];
+            if (countOld[id] != 1 || countNew[id] != 1) {
+                continue;
+            }
+            final int c = candidateCount++;
+            candidateOld[c] = positionOld[id];
+            candidateNew[c] = j;
+            int low = 0;
+            int high = pileCount;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (candidateOld[piles[mid]] < candidateOld[c]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            predecessor[c] = low > 0 ? piles[low - 1] : -1;
+            piles[low] = c;
+            if (low == pileCount) {
+                pileCount++;
+            }
+        }
+
+        final int[] anchors = new int[pileCount];
+        if (pileCount > 0) {
+            int c = piles[pileCount - 1];
+            for (int a = pileCount - 1; a >= 0; a--) {
+                anchors[a] = c;
+                c = predecessor[c];
+            }
+        }
+
+        final int[] regions = new int[4 * (pileCount + 1)];
+        int regionCount = 0;
+        int regionStartOld = start;
+        int regionStartNew = start;
+        for (final int c : anchors) {
+            this.matchingNew[candidateOld[c]] = candidateNew[c];
+            regionCount = addRegion(regions, regionCount, regionStartOld, candidateOld[c],
+                    regionStartNew, candidateNew[c]);
+            regionStartOld = candidateOld[c] + 1;
+            regionStartNew = candidateNew[c] + 1;
+        }
+        regionCount = addRegion(regions, regionCount, regionStartOld, endOld, regionStartNew, endNew);
+        return Arrays.copyOf(regions, 4 * regionCount);
+    }
+
+    private static int addRegion(int[] regions, int regionCount, int startOld, int endOld, int startNew, int endNew) {
+        if (startOld == endOld || startNew == endNew) {
+            return regionCount;
+        }
+        final int i = 4 * regionCount;
+        regions[i] = startOld;
+        regions[i + 1] = endOld;
+        regions[i + 2] = startNew;
+        regions[i + 3] = endNew;
+        return regionCount + 1;
+    }
+
+    /**
+     * Diffs the given regions, combined to tasks of {@link #minLinesPerTask} lines. The tasks are executed in
+     * the current fork join pool if there is one (e.g. when several files are diffed in parallel), and in a
+     * new pool otherwise.
+     */
+    private void diffRegions(int[] regions) {
+        final List<RegionsAction> tasks = new ArrayList<>();
+        int taskStart = 0;
+        int taskLines = 0;
+        final int regionCount = regions.length / 4;
+        for (int r = 0; r < regionCount; r++) {
+            final int i = 4 * r;
+            taskLines += regions[i + 1] - regions[i] + regions[i + 3] - regions[i + 2];
+            if (taskLines >= this.minLinesPerTask || r == regionCount - 1) {
+                tasks.add(new RegionsAction(regions, taskStart, r + 1));
+                taskStart = r + 1;
+                taskLines = 0;
+            }
+        }
+
+        if (tasks.size() <= 1) {
+            for (final RegionsAction task : tasks) {
+                task.compute();
+            }
+        } else if (ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+            try {
+                pool.invoke(new RecursiveAction() {
+                    private static final long serialVersionUID = -3382140931637052281L;
+
+                    @Override
+                    protected void compute() {
+                        ForkJoinTask.invokeAll(tasks);
+                    }
+                });
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+}
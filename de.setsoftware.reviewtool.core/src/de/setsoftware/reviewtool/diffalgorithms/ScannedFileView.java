@@ -0,0 +1,51 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import java.nio.charset.Charset;
+
+import de.setsoftware.reviewtool.base.ScannedText;
+
+/**
+ * {@link OneFileView} with the whole contents of a file that was scanned on the byte level.
+ * Lines are only decoded to strings when they are requested.
+ */
+final class ScannedFileView extends OneFileView<String> {
+    private final ScannedText text;
+    private final Charset charset;
+    private final String[] decodedLines;
+
+    public ScannedFileView(ScannedText text, Charset charset) {
+        this.text = text;
+        this.charset = charset;
+        this.decodedLines = new String[text.getLineCount()];
+    }
+
+    ScannedText getText() {
+        return this.text;
+    }
+
+    @Override
+    public int getItemCount() {
+        return this.decodedLines.length;
+    }
+
+    @Override
+    public String getItem(int i) {
+        String line = this.decodedLines[i];
+        if (line == null) {
+            line = this.text.getLine(i, this.charset);
+            this.decodedLines[i] = line;
+        }
+        return line;
+    }
+
+    @Override
+    public int toIndexInWholeFile(int index) {
+        return index;
+    }
+
+    @Override
+    public OneFileView<String> subrange(int start, int end) {
+        return new RangeView<>(this, start, end);
+    }
+
+}
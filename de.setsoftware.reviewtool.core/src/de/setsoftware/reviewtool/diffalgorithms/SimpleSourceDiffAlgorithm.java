@@ -9,6 +9,7 @@ import java.util.List;
 
 import de.setsoftware.reviewtool.base.Pair;
 import de.setsoftware.reviewtool.base.ReviewtoolException;
+import de.setsoftware.reviewtool.base.ScannedText;
 import de.setsoftware.reviewtool.model.api.IFragment;
 import de.setsoftware.reviewtool.model.api.IRevisionedFile;
 import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
@@ -113,6 +114,23 @@ class SimpleSourceDiffAlgorithm implements IDiffAlgorithm {
         return this.toFragments(fileOldInfo, fileNewInfo, linesWithDifferences);
     }
 
+    /**
+     * The budget is not enforced by this algorithm, as the LCS computation has its own size limit.
+     */
+    @Override
+    public DiffResult determineDiff(
+            IRevisionedFile fileOldInfo,
+            ScannedText fileOld,
+            IRevisionedFile fileNewInfo,
+            ScannedText fileNew,
+            String charset,
+            DiffBudget budget) {
+        final DiffCostCounter costCounter = budget.start();
+        final List<Pair<IFragment, IFragment>> fragments = this.determineDiff(
+                fileOldInfo, fileOld.getContent(), fileNewInfo, fileNew.getContent(), charset);
+        return new DiffResult(fragments, false, 0, costCounter.getElapsedMillis());
+    }
+
     private FullFileView<LogicalChunk> chunk(FullFileView<String> lines) {
         final List<LogicalChunk> logicalChunks = new ArrayList<>();
         int curChunkStart = 0;
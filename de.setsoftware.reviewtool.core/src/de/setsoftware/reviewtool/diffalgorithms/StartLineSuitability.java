@@ -1,10 +1,13 @@
 package de.setsoftware.reviewtool.diffalgorithms;
 
+import de.setsoftware.reviewtool.base.ScannedText;
+
 /**
- * Helper class for shifting the diff. Encapsulates the suitability of a certain line to be the start line
- * of a hunk.
+ * Helper class for shifting the diff. Determines the suitability of a certain line to be the start line
+ * of a hunk. The suitability is encoded in a short, so that it can be stored for all lines in a primitive
+ * array. The greater the value, the better suited is the line.
  */
-class StartLineSuitability implements Comparable<StartLineSuitability> {
+final class StartLineSuitability {
 
     /**
      * Different types of lines taken into account.
@@ -17,91 +20,120 @@ class StartLineSuitability implements Comparable<StartLineSuitability> {
         LINE_WITH_START_MARKER,
     }
 
-    private final Type type;
-    private final int indentation;
-    private final int markerGoodness;
+    /**
+     * Lines with a larger indentation are treated as if they had this indentation.
+     */
+    private static final int MAX_INDENTATION = 1023;
+
+    private StartLineSuitability() {
+    }
 
-    private StartLineSuitability(Type type, int countIndent, int markerGoodness) {
-        this.type = type;
-        this.indentation = countIndent;
-        this.markerGoodness = markerGoodness;
+    /**
+     * Determines the suitability of the given line.
+     */
+    public static short determineFor(String line) {
+        int first = 0;
+        int last = line.length() - 1;
+        while (first <= last && line.charAt(first) <= ' ') {
+            first++;
+        }
+        while (last >= first && line.charAt(last) <= ' ') {
+            last--;
+        }
+        int indentation = 0;
+        for (int i = 0; i < line.length() && indentation < MAX_INDENTATION; i++) {
+            final char ch = line.charAt(i);
+            if (ch == ' ') {
+                indentation++;
+            } else if (ch == '\t') {
+                indentation += 4;
+            } else {
+                break;
+            }
+        }
+        if (first > last) {
+            return encode(-1, -1, -1, indentation);
+        }
+        return encode(
+                line.charAt(first),
+                first < last ? line.charAt(first + 1) : -1,
+                line.charAt(last),
+                indentation);
+    }
+
+    /**
+     * Determines the suitability of the line with the given index in the given text, without decoding it.
+     * Gives the same result as for the decoded line, as long as the text's charset is ASCII compatible.
+     */
+    public static short determineFor(ScannedText text, int lineIndex) {
+        int first = 0;
+        int last = text.getLineLength(lineIndex) - 1;
+        while (first <= last && (text.getLineByte(lineIndex, first) & 0xFF) <= ' ') {
+            first++;
+        }
+        while (last >= first && (text.getLineByte(lineIndex, last) & 0xFF) <= ' ') {
+            last--;
+        }
+        int indentation = 0;
+        for (int i = 0; i < text.getLineLength(lineIndex) && indentation < MAX_INDENTATION; i++) {
+            final byte b = text.getLineByte(lineIndex, i);
+            if (b == ' ') {
+                indentation++;
+            } else if (b == '\t') {
+                indentation += 4;
+            } else {
+                break;
+            }
+        }
+        if (first > last) {
+            return encode(-1, -1, -1, indentation);
+        }
+        return encode(
+                text.getLineByte(lineIndex, first) & 0xFF,
+                first < last ? text.getLineByte(lineIndex, first + 1) & 0xFF : -1,
+                text.getLineByte(lineIndex, last) & 0xFF,
+                indentation);
     }
 
-    public static StartLineSuitability determineFor(String line) {
-        final String lineTrim = line.trim();
+    /**
+     * Classifies a line by the first, second and last character after trimming (-1 if there is none)
+     * and encodes the result. The type has the highest priority, then the indentation (less is better),
+     * then the goodness of the marker.
+     */
+    private static short encode(int first, int second, int last, int indentation) {
         final Type type;
         final int markerGoodness;
-        if (lineTrim.startsWith("/*")) {
+        if (first == '/' && second == '*') {
             type = Type.LINE_WITH_START_MARKER;
             markerGoodness = 3;
-        } else if (lineTrim.startsWith("@")) {
+        } else if (first == '@') {
             type = Type.LINE_WITH_START_MARKER;
             markerGoodness = 2;
-        } else if (lineTrim.endsWith("{")) {
+        } else if (last == '{') {
             type = Type.LINE_WITH_START_MARKER;
             markerGoodness = 1;
-        } else if (lineTrim.startsWith("</")) {
+        } else if (first == '<' && second == '/') {
             type = Type.LINE_WITH_END_MARKER;
             markerGoodness = 1;
-        } else if (lineTrim.startsWith("}")) {
+        } else if (first == '}') {
             type = Type.LINE_WITH_END_MARKER;
             markerGoodness = 1;
-        } else if (lineTrim.startsWith(")")) {
+        } else if (first == ')') {
             type = Type.LINE_WITH_END_MARKER;
             markerGoodness = 2;
-        } else if (lineTrim.startsWith("]")) {
+        } else if (first == ']') {
             type = Type.LINE_WITH_END_MARKER;
             markerGoodness = 3;
-        } else if (lineTrim.isEmpty()) {
+        } else if (first < 0) {
             type = Type.EMPTY_LINE;
             markerGoodness = 0;
         } else {
             type = Type.OTHER_LINE;
             markerGoodness = 0;
         }
-        return new StartLineSuitability(type, countIndent(line), markerGoodness);
-    }
-
-    private static int countIndent(String line) {
-        int cnt = 0;
-        for (final char ch : line.toCharArray()) {
-            if (ch == ' ') {
-                cnt++;
-            } else if (ch == '\t') {
-                cnt += 4;
-            } else {
-                break;
-            }
-        }
-        return cnt;
-    }
-
-    @Override
-    public int compareTo(StartLineSuitability o) {
-        int cmp;
-        cmp = Integer.compare(this.type.ordinal(), o.type.ordinal());
-        if (cmp != 0) {
-            return cmp;
-        }
-        cmp = Integer.compare(o.indentation, this.indentation);
-        if (cmp != 0) {
-            return cmp;
-        }
-        return Integer.compare(this.markerGoodness, o.markerGoodness);
-    }
-
-    @Override
-    public boolean equals(Object o) {
-        if (!(o instanceof StartLineSuitability)) {
-            return false;
-        }
-        final StartLineSuitability s = (StartLineSuitability) o;
-        return this.compareTo(s) == 0;
-    }
-
-    @Override
-    public int hashCode() {
-        return this.type.hashCode() + this.indentation + this.markerGoodness;
+        return (short) ((type.ordinal() << 12)
+                | ((MAX_INDENTATION - Math.min(indentation, MAX_INDENTATION)) << 2)
+                | markerGoodness);
     }
 
 }
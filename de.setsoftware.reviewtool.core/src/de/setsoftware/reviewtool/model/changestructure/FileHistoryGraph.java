@@ -3,11 +3,8 @@ package de.setsoftware.reviewtool.model.changestructure;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.List;
 import java.util.Set;
 
-import de.setsoftware.reviewtool.base.Multimap;
-import de.setsoftware.reviewtool.base.Pair;
 import de.setsoftware.reviewtool.model.api.ILocalRevision;
 import de.setsoftware.reviewtool.model.api.IMutableFileHistoryGraph;
 import de.setsoftware.reviewtool.model.api.IRepoRevision;
@@ -22,11 +19,11 @@ import de.setsoftware.reviewtool.model.api.IUnknownRevision;
  */
 public abstract class FileHistoryGraph extends AbstractFileHistoryGraph implements IMutableFileHistoryGraph {
 
-    private final Multimap<Pair<String, IRepository>, FileHistoryNode> index = new Multimap<>();
+    private final FileHistoryIndex index = new FileHistoryIndex();
 
     @Override
     public final boolean contains(final String path, final IRepository repo) {
-        return !this.index.get(Pair.create(path, repo)).isEmpty();
+        return this.index.contains(path, repo);
     }
 
     @Override
@@ -128,8 +125,7 @@ public abstract class FileHistoryGraph extends AbstractFileHistoryGraph implemen
         if (node == null) {
             final FileHistoryNode deletionNode = new FileHistoryNode(file, true);
             this.addParentNodes(deletionNode, false, false);
-            final Pair<String, IRepository> key = FileHistoryGraph.this.createKey(file);
-            this.index.put(key, deletionNode);
+            this.index.put(deletionNode, this.getRevisionOrder(revision));
             for (final FileHistoryNode ancestor : ancestors) {
                 ancestor.addDescendant(deletionNode, new FileDiff(ancestor.getFile(), file));
                 for (final FileHistoryNode child : ancestor.getChildren()) {
@@ -252,7 +248,7 @@ public abstract class FileHistoryGraph extends AbstractFileHistoryGraph implemen
         FileHistoryNode node = this.getNodeFor(file);
         if (node == null) {
             final FileHistoryNode newNode = new FileHistoryNode(file, false);
-            this.index.put(this.createKey(file), newNode);
+            this.index.put(newNode, this.getRevisionOrder(file.getRevision()));
 
             this.addParentNodes(newNode, isNew, copyChildren);
             if (!isNew && newNode.isRoot()) { // addParentNodes() may have already added an ancestor
@@ -293,29 +289,23 @@ public abstract class FileHistoryGraph extends AbstractFileHistoryGraph implemen
 
     @Override
     public final FileHistoryNode getNodeFor(final IRevisionedFile file) {
-        final Pair<String, IRepository> key = this.createKey(file);
-        final List<FileHistoryNode> nodesForKey = this.index.get(key);
-        for (final FileHistoryNode node : nodesForKey) {
-            if (node.getFile().getRevision().equals(file.getRevision())) {
-                return node;
-            }
-        }
-        return null;
+        return this.index.get(file, this.getRevisionOrder(file.getRevision()));
     }
 
-    private Pair<String, IRepository> createKey(final IRevisionedFile file) {
-        return Pair.create(file.getPath(), file.getRepository());
+    /**
+     * Returns the node with the same path as passed {@link IRevisionedFile} that has the latest revision before
+     * the file's revision, or <code>null</code> if there is none. Uses a binary search in the index.
+     */
+    protected final FileHistoryNode findLatestNodeBefore(final IRevisionedFile file) {
+        return this.index.findLatestBefore(file.getPath(), file.getRepository(),
+                this.getRevisionOrder(file.getRevision()));
     }
 
     /**
-     * Performs a file lookup in the index.
-     * @param file The file to look for.
-     * @return A list of matching {@link FileHistoryNode}s.
+     * Returns a number that orders the revisions in this graph: a later revision has a greater number. Revisions
+     * that cannot be ordered relative to each other may have the same number.
      */
-    protected final List<FileHistoryNode> lookupFile(final IRevisionedFile file) {
-        final Pair<String, IRepository> key = this.createKey(file);
-        return this.index.get(key);
-    }
+    protected abstract long getRevisionOrder(IRevision revision);
 
     /**
      * Returns the nearest ancestor for passed {@link IRevisionedFile} having the same path, or <code>null</code>
@@ -0,0 +1,154 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import de.setsoftware.reviewtool.base.Pair;
+import de.setsoftware.reviewtool.model.api.IRepository;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+
+/**
+ * Index of the nodes in a {@link FileHistoryGraph}. The {@link FileHistoryNode}s of every path and repository
+ * are kept sorted by the revision order determined by the graph, so that finding the node for a revision or
+ * the latest node before a revision is a hash lookup followed by a binary search.
+ */
+final class FileHistoryIndex {
+
+    /**
+     * The history nodes for one path, sorted by revision order.
+     */
+    private static final class NodesForPath {
+        private static final FileHistoryNode[] NO_NODES = new FileHistoryNode[0];
+        private static final long[] NO_ORDERS = new long[0];
+
+        private FileHistoryNode[] nodes = NO_NODES;
+        private long[] revisionOrders = NO_ORDERS;
+        private int size;
+
+        /**
+         * Inserts the given node after all nodes with a smaller or equal revision order.
+         */
+        private void insert(FileHistoryNode node, long revisionOrder) {
+            if (this.size == this.nodes.length) {
+                final int newLength = Math.max(2, 2 * this.size);
+                this.nodes = Arrays.copyOf(this.nodes, newLength);
+                this.revisionOrders = Arrays.copyOf(this.revisionOrders, newLength);
+            }
+            final int pos = this.findFirstGreater(revisionOrder);
+            System.arraycopy(this.nodes, pos, this.nodes, pos + 1, this.size - pos);
+            System.arraycopy(this.revisionOrders, pos, this.revisionOrders, pos + 1, this.size - pos);
+            this.nodes[pos] = node;
+            this.revisionOrders[pos] = revisionOrder;
+            this.size++;
+        }
+
+        /**
+         * Returns the index of the first node with a revision order greater than the given one (or the size if
+         * there is none).
+         */
+        private int findFirstGreater(long revisionOrder) {
+            int low = 0;
+            int high = this.size;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (this.revisionOrders[mid] <= revisionOrder) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Returns the index of the first node with a revision order greater than or equal to the given one
+         * (or the size if there is none).
+         */
+        private int findFirstGreaterOrEqual(long revisionOrder) {
+            return revisionOrder == Long.MIN_VALUE ? 0 : this.findFirstGreater(revisionOrder - 1);
+        }
+
+        private List<FileHistoryNode> getNodes() {
+            return Arrays.asList(this.nodes).subList(0, this.size);
+        }
+    }
+
+    private final Map<Pair<String, IRepository>, NodesForPath> nodesPerPath = new HashMap<>();
+
+    /**
+     * Returns true iff there is at least one node for the given path.
+     */
+    boolean contains(String path, IRepository repo) {
+        return this.nodesPerPath.containsKey(Pair.create(path, repo));
+    }
+
+    /**
+     * Adds the given node. The revision order has to be determined by the graph for the node's revision.
+     */
+    void put(FileHistoryNode node, long revisionOrder) {
+        final IRevisionedFile file = node.getFile();
+        final Pair<String, IRepository> key = Pair.create(file.getPath(), file.getRepository());
+        NodesForPath nodes = this.nodesPerPath.get(key);
+        if (nodes == null) {
+            nodes = new NodesForPath();
+            this.nodesPerPath.put(key, nodes);
+        }
+        nodes.insert(node, revisionOrder);
+    }
+
+    /**
+     * Returns the node for the given file, or null if there is none.
+     */
+    FileHistoryNode get(IRevisionedFile file, long revisionOrder) {
+        final NodesForPath nodes = this.nodesPerPath.get(Pair.create(file.getPath(), file.getRepository()));
+        if (nodes == null) {
+            return null;
+        }
+        for (int i = nodes.findFirstGreaterOrEqual(revisionOrder);
+                i < nodes.size && nodes.revisionOrders[i] == revisionOrder;
+                i++) {
+            if (nodes.nodes[i].getFile().getRevision().equals(file.getRevision())) {
+                return nodes.nodes[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the node for the given path with the greatest revision order that is smaller than the given one,
+     * or null if there is none. When there are several such nodes, the one that was added first is returned.
+     */
+    FileHistoryNode findLatestBefore(String path, IRepository repo, long revisionOrder) {
+        final NodesForPath nodes = this.nodesPerPath.get(Pair.create(path, repo));
+        if (nodes == null) {
+            return null;
+        }
+        final int end = nodes.findFirstGreaterOrEqual(revisionOrder);
+        if (end == 0) {
+            return null;
+        }
+        final long latestOrder = nodes.revisionOrders[end - 1];
+        return nodes.nodes[nodes.findFirstGreaterOrEqual(latestOrder)];
+    }
+
+    @Override
+    public String toString() {
+        final Map<String, List<FileHistoryNode>> sorted = new TreeMap<>();
+        for (final Entry<Pair<String, IRepository>, NodesForPath> e : this.nodesPerPath.entrySet()) {
+            final String path = e.getKey().getFirst();
+            final List<FileHistoryNode> nodes = sorted.get(path);
+            if (nodes == null) {
+                sorted.put(path, new ArrayList<>(e.getValue().getNodes()));
+            } else {
+                nodes.addAll(e.getValue().getNodes());
+            }
+        }
+        return sorted.toString();
+    }
+
+}
@@ -1,9 +1,6 @@
 package de.setsoftware.reviewtool.model.changestructure;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -11,6 +8,7 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 
 import de.setsoftware.reviewtool.base.ReviewtoolException;
+import de.setsoftware.reviewtool.base.ScannedText;
 import de.setsoftware.reviewtool.model.api.IDelta;
 import de.setsoftware.reviewtool.model.api.IFragment;
 import de.setsoftware.reviewtool.model.api.IFragmentList;
@@ -163,28 +161,15 @@ public final class Fragment implements IFragment {
             return "?";
         }
 
-        try {
-            final BufferedReader r = new BufferedReader(new InputStreamReader(
-                    new ByteArrayInputStream(contents), "UTF-8"));
-            final StringBuilder ret = new StringBuilder();
-            int lineNumber = 1;
-            String lineContent;
-            while ((lineContent = r.readLine()) != null) {
-                if (lineNumber >= this.from.getLine()) {
-                    if (lineNumber < this.to.getLine()) {
-                        ret.append(lineContent).append('\n');
-                    } else if (lineNumber == this.to.getLine()) {
-                        if (this.to.getColumn() > 1) {
-                            ret.append(lineContent).append('\n');
-                        }
-                    }
-                }
-                lineNumber++;
-            }
-            return ret.toString();
-        } catch (final IOException e) {
-            throw new AssertionError("unexpected exception", e);
+        //the contents are only scanned up to the end of the fragment, and only the lines of the fragment are decoded
+        final int endLine = this.to.getColumn() > 1 ? this.to.getLine() : this.to.getLine() - 1;
+        final ScannedText text = ScannedText.scanPrefix(contents, endLine);
+        final int lastLine = text.getLineCount();
+        final StringBuilder ret = new StringBuilder();
+        for (int lineNumber = Math.max(1, this.from.getLine()); lineNumber <= lastLine; lineNumber++) {
+            ret.append(text.getLine(lineNumber - 1, StandardCharsets.UTF_8)).append('\n');
         }
+        return ret.toString();
     }
 
     @Override
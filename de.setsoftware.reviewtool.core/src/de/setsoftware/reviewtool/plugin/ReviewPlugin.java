@@ -57,6 +57,8 @@ import de.setsoftware.reviewtool.config.IReviewConfigurable;
 import de.setsoftware.reviewtool.connectors.file.FilePersistence;
 import de.setsoftware.reviewtool.connectors.file.FileTicketConnectorConfigurator;
 import de.setsoftware.reviewtool.connectors.jira.JiraConnectorConfigurator;
+import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmConfigurator;
+import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmFactory;
 import de.setsoftware.reviewtool.irrelevancestrategies.basicfilters.BasicIrrelevanceFilterConfigurator;
 import de.setsoftware.reviewtool.irrelevancestrategies.pathfilters.PathIrrelevanceFilterConfigurator;
 import de.setsoftware.reviewtool.model.EndTransition;
@@ -395,6 +397,9 @@ public class ReviewPlugin implements IReviewConfigurable {
                 new FilePersistence(new File("."), "please configure"),
                 new RealUi());
 
+        DiffAlgorithmFactory.setCacheDirectory(
+                new File(Activator.getDefault().getStateLocation().toFile(), "diffcache"));
+
         final Version bundleVersion = Activator.getDefault().getBundle().getVersion();
         this.configInterpreter.addConfigurator(new FileTicketConnectorConfigurator());
         this.configInterpreter.addConfigurator(new JiraConnectorConfigurator());
@@ -405,6 +410,7 @@ public class ReviewPlugin implements IReviewConfigurable {
         this.configInterpreter.addConfigurator(new PathRegexStrategyConfigurator());
         this.configInterpreter.addConfigurator(new BasicIrrelevanceFilterConfigurator());
         this.configInterpreter.addConfigurator(new PathIrrelevanceFilterConfigurator());
+        this.configInterpreter.addConfigurator(new DiffAlgorithmConfigurator());
         final IExtensionPoint configuratorExtensions =
                 Platform.getExtensionRegistry().getExtensionPoint("de.setsoftware.reviewtool.configurator");
         for (final IExtension extension : configuratorExtensions.getExtensions()) {
@@ -442,6 +448,7 @@ public class ReviewPlugin implements IReviewConfigurable {
         this.endReviewExtensions.clear();
         this.preferredTransitionStrategies.clear();
         this.relevanceFilters.clear();
+        DiffAlgorithmFactory.resetDefault();
 
         try {
             final Document config = ConfigurationInterpreter.load(configFile);
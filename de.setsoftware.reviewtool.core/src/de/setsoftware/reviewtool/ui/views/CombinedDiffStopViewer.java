@@ -1,10 +1,6 @@
 package de.setsoftware.reviewtool.ui.views;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CodingErrorAction;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -37,7 +33,9 @@ import org.eclipse.ui.part.ViewPart;
 import de.setsoftware.reviewtool.base.LineSequence;
 import de.setsoftware.reviewtool.base.Pair;
 import de.setsoftware.reviewtool.base.ReviewtoolException;
+import de.setsoftware.reviewtool.base.ScannedText;
 import de.setsoftware.reviewtool.diffalgorithms.DiffAlgorithmFactory;
+import de.setsoftware.reviewtool.diffalgorithms.DiffResult;
 import de.setsoftware.reviewtool.model.Constants;
 import de.setsoftware.reviewtool.model.api.IFileHistoryEdge;
 import de.setsoftware.reviewtool.model.api.IFileHistoryNode;
@@ -309,13 +307,13 @@ public class CombinedDiffStopViewer implements IStopViewer {
      * Helper class to capture file contents as strings as well as bytes.
      */
     private static final class FileContent {
-        private final byte[] bytes;
+        private final ScannedText text;
         private final LineSequence lines;
         private final String charset;
 
-        public FileContent(byte[] data, String charset) throws IOException {
-            this.bytes = data;
-            this.lines = new LineSequence(data, charset);
+        public FileContent(ScannedText text, String charset) throws IOException {
+            this.text = text;
+            this.lines = new LineSequence(text, charset);
             this.charset = charset;
         }
     }
@@ -361,6 +359,7 @@ public class CombinedDiffStopViewer implements IStopViewer {
     private Combo comboLeft;
     private Combo comboRight;
     private SelectableMergeViewer viewer;
+    private boolean diffIsApproximate;
 
     private Highlights highlightsLeft;
     private Highlights highlightsRight;
@@ -430,8 +429,6 @@ public class CombinedDiffStopViewer implements IStopViewer {
             this.comboRight.select(this.allRevisions.indexOf(initialRightRevision) - 1);
             this.comboRight.addSelectionListener(fileChangedListener);
 
-            this.setTooltips(initialLeftRevision, initialRightRevision);
-
             final Composite viewerWrapper = new Composite(scrollContent, SWT.NONE);
             viewerWrapper.setLayout(new FillLayout());
             viewerWrapper.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true, 2, 1));
@@ -443,6 +440,7 @@ public class CombinedDiffStopViewer implements IStopViewer {
             }
 
             this.initDiffViewerContent(initialLeftRevision, initialRightRevision);
+            this.setTooltips(initialLeftRevision, initialRightRevision);
             this.moveToLineForStop(stop, initialLeftRevision, initialRightRevision);
             for (final SourceViewer v : this.viewer.getViewers()) {
                 ViewHelper.createContextMenu(view, v.getTextWidget(), v);
@@ -451,8 +449,10 @@ public class CombinedDiffStopViewer implements IStopViewer {
     }
 
     private void setTooltips(IRevisionedFile leftFile, IRevisionedFile rightFile) {
-        this.comboLeft.setToolTipText(leftFile.toString());
-        this.comboRight.setToolTipText(rightFile.toString());
+        final String approximateNote = this.diffIsApproximate
+                ? "\n(approximate diff, the exact diff would have taken too long)" : "";
+        this.comboLeft.setToolTipText(leftFile.toString() + approximateNote);
+        this.comboRight.setToolTipText(rightFile.toString() + approximateNote);
     }
 
     private void initDiffViewerContent(final IRevisionedFile leftRevision, final IRevisionedFile rightRevision) {
@@ -465,13 +465,15 @@ public class CombinedDiffStopViewer implements IStopViewer {
             throw new ReviewtoolException(e);
         }
 
-        final List<Pair<IFragment, IFragment>> relevantHunks =
-                DiffAlgorithmFactory.createDefault().determineDiff(
-                        leftRevision,
-                        oldContents.bytes,
-                        rightRevision,
-                        newContents.bytes,
-                        newContents.charset);
+        final DiffResult diff = DiffAlgorithmFactory.createDefault().determineDiff(
+                leftRevision,
+                oldContents.text,
+                rightRevision,
+                newContents.text,
+                newContents.charset,
+                DiffAlgorithmFactory.getDefaultBudget());
+        this.diffIsApproximate = diff.isApproximate();
+        final List<Pair<IFragment, IFragment>> relevantHunks = diff.getFragments();
 
         final List<Position> oldPositions = new ArrayList<>();
         final List<Position> newPositions = new ArrayList<>();
@@ -580,16 +582,8 @@ public class CombinedDiffStopViewer implements IStopViewer {
     }
 
     private FileContent loadFile(IRevisionedFile revision) throws Exception {
-        final byte[] data = revision.getContents();
-        try {
-            StandardCharsets.UTF_8.newDecoder()
-                .onMalformedInput(CodingErrorAction.REPORT)
-                .onUnmappableCharacter(CodingErrorAction.REPORT)
-                .decode(ByteBuffer.wrap(data));
-            return new FileContent(data, "UTF-8");
-        } catch (final CharacterCodingException e) {
-            return new FileContent(data, "ISO-8859-1");
-        }
+        final ScannedText text = ScannedText.scan(revision.getContents());
+        return new FileContent(text, text.isValidUtf8() ? "UTF-8" : "ISO-8859-1");
     }
 
     private static Highlights mark(
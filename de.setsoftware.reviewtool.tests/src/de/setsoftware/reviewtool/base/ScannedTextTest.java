@@ -0,0 +1,116 @@
+package de.setsoftware.reviewtool.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ScannedText}.
+ */
+public class ScannedTextTest {
+
+    private static List<String> readLinesWithReader(byte[] content) throws Exception {
+        final BufferedReader r = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(content), StandardCharsets.UTF_8));
+        final List<String> ret = new ArrayList<>();
+        String line;
+        while ((line = r.readLine()) != null) {
+            ret.add(line);
+        }
+        return ret;
+    }
+
+    private static List<String> readLinesWithScanner(byte[] content) {
+        final ScannedText text = ScannedText.scan(content);
+        final List<String> ret = new ArrayList<>();
+        for (int i = 0; i < text.getLineCount(); i++) {
+            ret.add(text.getLine(i, StandardCharsets.UTF_8));
+        }
+        return ret;
+    }
+
+    private static boolean isValidUtf8WithDecoder(byte[] content) {
+        try {
+            StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(content));
+            return true;
+        } catch (final CharacterCodingException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testLinesAreSplitLikeWithReadLine() throws Exception {
+        final String[] samples = {
+            "", "a", "a\n", "a\r\nb", "a\rb\r", "\n\n", "\r\n\r\n", "\r\r\n", "a\n\rb", "xä€\ny",
+        };
+        for (final String sample : samples) {
+            final byte[] content = sample.getBytes(StandardCharsets.UTF_8);
+            assertEquals(sample, readLinesWithReader(content), readLinesWithScanner(content));
+        }
+    }
+
+    @Test
+    public void testUtf8ValidationIsTheSameAsWithDecoder() {
+        final Random r = new Random(4711);
+        final byte[] interestingBytes = {
+            'a', '\n', (byte) 0x80, (byte) 0xBF, (byte) 0xC0, (byte) 0xC2, (byte) 0xDF, (byte) 0xE0,
+            (byte) 0xED, (byte) 0xA0, (byte) 0x9F, (byte) 0xF0, (byte) 0x90, (byte) 0xF4, (byte) 0x8F, (byte) 0xF5,
+        };
+        for (int i = 0; i < 20000; i++) {
+            final byte[] content = new byte[r.nextInt(8)];
+            for (int j = 0; j < content.length; j++) {
+                content[j] = interestingBytes[r.nextInt(interestingBytes.length)];
+            }
+            final boolean expected = isValidUtf8WithDecoder(content);
+            assertEquals(expected, ScannedText.scan(content).isValidUtf8());
+        }
+    }
+
+    @Test
+    public void testScanPrefixStopsAfterGivenNumberOfLines() {
+        final byte[] content = "a\r\nb\nc".getBytes(StandardCharsets.UTF_8);
+        assertEquals(0, ScannedText.scanPrefix(content, 0).getLineCount());
+        final ScannedText twoLines = ScannedText.scanPrefix(content, 2);
+        assertEquals(2, twoLines.getLineCount());
+        assertEquals("a", twoLines.getLine(0, StandardCharsets.UTF_8));
+        assertEquals("b", twoLines.getLine(1, StandardCharsets.UTF_8));
+        assertEquals(3, ScannedText.scanPrefix(content, 5).getLineCount());
+        assertEquals(readLinesWithScanner(content).size(), ScannedText.scanPrefix(content, 3).getLineCount());
+    }
+
+    @Test
+    public void testLineEquals() {
+        final ScannedText text1 = ScannedText.scan("abc\ndef\r\nabc".getBytes(StandardCharsets.UTF_8));
+        final ScannedText text2 = ScannedText.scan("def\nab\nabc\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(text1.lineEquals(0, text1, 2));
+        assertTrue(text1.lineEquals(1, text2, 0));
+        assertTrue(text1.lineEquals(0, text2, 2));
+        assertFalse(text1.lineEquals(0, text2, 1));
+        assertFalse(text1.lineEquals(1, text2, 2));
+    }
+
+    @Test
+    public void testAsciiCompatibleCharsets() {
+        assertTrue(ScannedText.isAsciiCompatible(StandardCharsets.UTF_8));
+        assertTrue(ScannedText.isAsciiCompatible(StandardCharsets.ISO_8859_1));
+        assertFalse(ScannedText.isAsciiCompatible(StandardCharsets.UTF_16));
+        assertFalse(ScannedText.isAsciiCompatible(StandardCharsets.UTF_16LE));
+    }
+
+}
@@ -0,0 +1,128 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.base.Pair;
+import de.setsoftware.reviewtool.base.ScannedText;
+import de.setsoftware.reviewtool.model.api.IFragment;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
+
+/**
+ * Tests for {@link CachingDiffAlgorithm}.
+ */
+public class CachingDiffAlgorithmTest {
+
+    /**
+     * Counts the calls to the decorated algorithm.
+     */
+    private static final class CountingDiffAlgorithm implements IDiffAlgorithm {
+        private final IDiffAlgorithm decorated = new MyersSourceDiffAlgorithm();
+        private int callCount;
+
+        @Override
+        public List<Pair<IFragment, IFragment>> determineDiff(IRevisionedFile fileOldInfo, byte[] fileOldContent,
+                IRevisionedFile fileNewInfo, byte[] fileNewContent, String charset) {
+            this.callCount++;
+            return this.decorated.determineDiff(fileOldInfo, fileOldContent, fileNewInfo, fileNewContent, charset);
+        }
+
+        @Override
+        public DiffResult determineDiff(IRevisionedFile fileOldInfo, ScannedText fileOldContent,
+                IRevisionedFile fileNewInfo, ScannedText fileNewContent, String charset, DiffBudget budget) {
+            this.callCount++;
+            return this.decorated.determineDiff(
+                    fileOldInfo, fileOldContent, fileNewInfo, fileNewContent, charset, budget);
+        }
+    }
+
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws Exception {
+        this.cacheDir = Files.createTempDirectory("diffcache").toFile();
+        DiffResultCache.getInstance().setDirectory(this.cacheDir);
+    }
+
+    @After
+    public void tearDown() {
+        DiffResultCache.getInstance().setDirectory(null);
+    }
+
+    private static List<Pair<IFragment, IFragment>> diff(IDiffAlgorithm algorithm, String oldContent,
+            String newContent) throws Exception {
+        return algorithm.determineDiff(
+                ChangestructureFactory.createFileInRevision("a.txt", null),
+                oldContent.getBytes("UTF-8"),
+                ChangestructureFactory.createFileInRevision("a.txt", null),
+                newContent.getBytes("UTF-8"),
+                "UTF-8");
+    }
+
+    private static DiffResult diff(IDiffAlgorithm algorithm, String oldContent,
+            String newContent, DiffBudget budget) throws Exception {
+        return algorithm.determineDiff(
+                ChangestructureFactory.createFileInRevision("a.txt", null),
+                ScannedText.scan(oldContent.getBytes("UTF-8")),
+                ChangestructureFactory.createFileInRevision("a.txt", null),
+                ScannedText.scan(newContent.getBytes("UTF-8")),
+                "UTF-8",
+                budget);
+    }
+
+    @Test
+    public void testSecondDiffIsTakenFromCache() throws Exception {
+        final CountingDiffAlgorithm counter = new CountingDiffAlgorithm();
+        final CachingDiffAlgorithm algorithm = new CachingDiffAlgorithm(counter, "test/1");
+        final String oldContent = "a\nb\nc\nd\n";
+        final String newContent = "a\nx\nc\ny\nz\n";
+
+        final List<Pair<IFragment, IFragment>> first = diff(algorithm, oldContent, newContent);
+        final List<Pair<IFragment, IFragment>> second = diff(algorithm, oldContent, newContent);
+
+        assertEquals(1, counter.callCount);
+        assertEquals(first.toString(), second.toString());
+        assertEquals(2, second.size());
+    }
+
+    @Test
+    public void testDifferentContentOrAlgorithmIsNotTakenFromCache() throws Exception {
+        final CountingDiffAlgorithm counter = new CountingDiffAlgorithm();
+        diff(new CachingDiffAlgorithm(counter, "test/1"), "a\nb\n", "a\nc\n");
+        diff(new CachingDiffAlgorithm(counter, "test/1"), "a\nb\n", "a\nd\n");
+        diff(new CachingDiffAlgorithm(counter, "test/2"), "a\nb\n", "a\nc\n");
+        assertEquals(3, counter.callCount);
+        diff(new CachingDiffAlgorithm(counter, "test/2"), "a\nb\n", "a\nc\n");
+        assertEquals(3, counter.callCount);
+    }
+
+    @Test
+    public void testApproximateResultIsNotCached() throws Exception {
+        final CountingDiffAlgorithm counter = new CountingDiffAlgorithm();
+        final CachingDiffAlgorithm algorithm = new CachingDiffAlgorithm(counter, "test/1");
+        final DiffBudget budget = new DiffBudget(1, Long.MAX_VALUE);
+
+        final DiffResult first = diff(algorithm, "a\nb\nc\nd\n", "x\nb\ny\nd\n", budget);
+        assertTrue(first.isApproximate());
+        diff(algorithm, "a\nb\nc\nd\n", "x\nb\ny\nd\n", budget);
+        assertEquals(2, counter.callCount);
+
+        final DiffResult exact = diff(algorithm, "a\nb\nc\nd\n", "x\nb\ny\nd\n", DiffBudget.unlimited());
+        assertFalse(exact.isApproximate());
+        final DiffResult cached = diff(algorithm, "a\nb\nc\nd\n", "x\nb\ny\nd\n", budget);
+        assertFalse(cached.isApproximate());
+        assertEquals(3, counter.callCount);
+        assertEquals(exact.getFragments().toString(), cached.getFragments().toString());
+    }
+
+}
@@ -0,0 +1,52 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+/**
+ * Helpers for the tests of the diff engines that build {@link PathNode}s.
+ */
+final class DiffPathChecks {
+
+    private DiffPathChecks() {
+    }
+
+    /**
+     * Returns a random number of lines (between zero and maxCount, inclusive), each chosen randomly from
+     * alphabetSize different lines.
+     */
+    static String[] randomLines(Random r, int maxCount, int alphabetSize) {
+        final String[] ret = new String[r.nextInt(maxCount + 1)];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = "line " + r.nextInt(alphabetSize);
+        }
+        return ret;
+    }
+
+    /**
+     * Asserts that the given path covers both files completely and that its snakes only match equal lines.
+     * Returns the number of changed lines in both files.
+     */
+    static int checkValidAndCountChangedLines(PathNode path, String[] oldLines, String[] newLines) {
+        assertTrue(path.isSnake());
+        assertEquals(oldLines.length, path.getPosOld());
+        assertEquals(newLines.length, path.getPosNew());
+        int changed = 0;
+        PathNode cur = path;
+        while (cur != null) {
+            if (cur.isSnake()) {
+                assertEquals(cur.getLengthOld(), cur.getLengthNew());
+                for (int i = 0; i < cur.getLengthOld(); i++) {
+                    assertEquals(oldLines[cur.getStartPosOld() + i], newLines[cur.getStartPosNew() + i]);
+                }
+            } else {
+                changed += cur.getLengthOld() + cur.getLengthNew();
+            }
+            cur = cur.getPrev();
+        }
+        return changed;
+    }
+
+}
@@ -0,0 +1,99 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DiffResultCache}.
+ */
+public class DiffResultCacheTest {
+
+    private static final long BLOCK = 4096;
+
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws Exception {
+        this.cacheDir = Files.createTempDirectory("diffcache").toFile();
+        DiffResultCache.getInstance().setDirectory(this.cacheDir);
+    }
+
+    @After
+    public void tearDown() {
+        DiffResultCache.getInstance().setDirectory(null);
+        DiffResultCache.getInstance().setMaxSize(DiffResultCache.DEFAULT_MAX_SIZE);
+    }
+
+    private File file(String key) {
+        return new File(new File(this.cacheDir, key.substring(0, 2)), key);
+    }
+
+    @Test
+    public void testStoredPositionsAreReturned() {
+        final DiffResultCache cache = DiffResultCache.getInstance();
+        cache.put("ab01", new int[] {1, 1, 2, 1, 1, 1, 3, 1});
+        assertArrayEquals(new int[] {1, 1, 2, 1, 1, 1, 3, 1}, cache.get("ab01"));
+        assertNull(cache.get("ab02"));
+        assertEquals(BLOCK, cache.getTotalSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResultIsEvicted() {
+        final DiffResultCache cache = DiffResultCache.getInstance();
+        cache.setMaxSize(3 * BLOCK);
+        cache.put("ab01", new int[] {1});
+        cache.put("ab02", new int[] {2});
+        cache.put("cd03", new int[] {3});
+        assertArrayEquals(new int[] {1}, cache.get("ab01"));
+
+        cache.put("cd04", new int[] {4});
+
+        assertEquals(3 * BLOCK, cache.getTotalSize());
+        assertNull(cache.get("ab02"));
+        assertFalse(this.file("ab02").exists());
+        assertArrayEquals(new int[] {1}, cache.get("ab01"));
+        assertArrayEquals(new int[] {3}, cache.get("cd03"));
+        assertArrayEquals(new int[] {4}, cache.get("cd04"));
+    }
+
+    @Test
+    public void testReducingMaxSizeEvicts() {
+        final DiffResultCache cache = DiffResultCache.getInstance();
+        cache.put("ab01", new int[] {1});
+        cache.put("ab02", new int[] {2});
+        cache.setMaxSize(0);
+        assertEquals(0, cache.getTotalSize());
+        assertFalse(this.file("ab01").exists());
+        assertFalse(this.file("ab02").exists());
+    }
+
+    @Test
+    public void testStoredResultsAndAccessOrderAreRetainedAcrossRestarts() {
+        final DiffResultCache cache = DiffResultCache.getInstance();
+        cache.put("ab01", new int[] {1});
+        cache.put("cd02", new int[] {2});
+        assertTrue(this.file("ab01").setLastModified(2000000000000L));
+        assertTrue(this.file("cd02").setLastModified(1000000000000L));
+
+        cache.setDirectory(null);
+        assertNull(cache.get("ab01"));
+        cache.setMaxSize(BLOCK);
+        cache.setDirectory(this.cacheDir);
+
+        assertEquals(BLOCK, cache.getTotalSize());
+        assertArrayEquals(new int[] {1}, cache.get("ab01"));
+        assertNull(cache.get("cd02"));
+        assertFalse(this.file("cd02").exists());
+    }
+
+}
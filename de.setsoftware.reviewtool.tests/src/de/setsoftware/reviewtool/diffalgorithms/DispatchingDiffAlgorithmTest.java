@@ -0,0 +1,199 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.After;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+import de.setsoftware.reviewtool.base.Pair;
+import de.setsoftware.reviewtool.base.ReviewtoolException;
+import de.setsoftware.reviewtool.base.ScannedText;
+import de.setsoftware.reviewtool.model.api.IFragment;
+import de.setsoftware.reviewtool.model.api.IRevisionedFile;
+import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
+
+/**
+ * Tests for {@link DispatchingDiffAlgorithm}, and for choosing algorithms by name with
+ * {@link DiffAlgorithmFactory} and {@link DiffAlgorithmConfigurator}.
+ */
+public class DispatchingDiffAlgorithmTest {
+
+    /**
+     * Remembers whether it has been called.
+     */
+    private static final class StubDiffAlgorithm implements IDiffAlgorithm {
+        private int callCount;
+
+        @Override
+        public List<Pair<IFragment, IFragment>> determineDiff(IRevisionedFile fileOldInfo, byte[] fileOldContent,
+                IRevisionedFile fileNewInfo, byte[] fileNewContent, String charset) {
+            this.callCount++;
+            return null;
+        }
+
+        @Override
+        public DiffResult determineDiff(IRevisionedFile fileOldInfo, ScannedText fileOldContent,
+                IRevisionedFile fileNewInfo, ScannedText fileNewContent, String charset, DiffBudget budget) {
+            this.callCount++;
+            return null;
+        }
+    }
+
+    private final StubDiffAlgorithm defaultAlgorithm = new StubDiffAlgorithm();
+    private final StubDiffAlgorithm largeFileAlgorithm = new StubDiffAlgorithm();
+
+    @After
+    public void tearDown() {
+        DiffAlgorithmFactory.resetDefault();
+    }
+
+    private DispatchingDiffAlgorithm createDispatcher(long largeFileThreshold, long maxEstimatedCost) {
+        return new DispatchingDiffAlgorithm(
+                this.defaultAlgorithm, this.largeFileAlgorithm, largeFileThreshold, maxEstimatedCost);
+    }
+
+    private static byte[] lines(int count, String prefix) {
+        final StringBuilder ret = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            ret.append(prefix).append(i).append("; //some text to get a realistic line length\n");
+        }
+        return ret.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(int count) {
+        return new byte[count];
+    }
+
+    private static Element parse(String xml) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))).getDocumentElement();
+    }
+
+    private static String algorithmIdFor(IDiffAlgorithm algorithm, String path, byte[] oldContent,
+            byte[] newContent) {
+        final IDiffAlgorithm chosen = ((DispatchingDiffAlgorithm) algorithm).chooseAlgorithm(
+                path, oldContent, newContent);
+        return ((CachingDiffAlgorithm) chosen).getAlgorithmId();
+    }
+
+    @Test
+    public void testSmallFilesUseDefaultAlgorithm() {
+        final DispatchingDiffAlgorithm d = this.createDispatcher(1000, 1000000);
+        assertSame(this.defaultAlgorithm, d.chooseAlgorithm("/a/X.java", bytes(400), bytes(600)));
+        assertSame(this.defaultAlgorithm, d.chooseAlgorithm("/a/X.java", bytes(0), bytes(0)));
+    }
+
+    @Test
+    public void testLargeFilesUseLargeFileAlgorithm() {
+        final DispatchingDiffAlgorithm d = this.createDispatcher(1000, 1000000);
+        assertSame(this.largeFileAlgorithm, d.chooseAlgorithm("/a/X.java", bytes(400), bytes(601)));
+        assertSame(this.largeFileAlgorithm, d.chooseAlgorithm("/a/X.java", bytes(1001), bytes(0)));
+    }
+
+    @Test
+    public void testEstimatedCostDependsOnChangedPart() {
+        final DispatchingDiffAlgorithm d = this.createDispatcher(Long.MAX_VALUE, 100000);
+        final byte[] oldContent = lines(1000, "old");
+        final byte[] completelyChanged = lines(1000, "new");
+        final byte[] slightlyChanged = oldContent.clone();
+        slightlyChanged[oldContent.length / 2] = 'X';
+
+        assertSame(this.largeFileAlgorithm, d.chooseAlgorithm("/a/X.java", oldContent, completelyChanged));
+        assertSame(this.defaultAlgorithm, d.chooseAlgorithm("/a/X.java", oldContent, slightlyChanged));
+    }
+
+    @Test
+    public void testSuffixRuleHasPrecedence() {
+        final DispatchingDiffAlgorithm d = this.createDispatcher(1000, 1000000);
+        final StubDiffAlgorithm xmlAlgorithm = new StubDiffAlgorithm();
+        final StubDiffAlgorithm propertiesAlgorithm = new StubDiffAlgorithm();
+        d.addAlgorithmForSuffix(".xml", xmlAlgorithm);
+        d.addAlgorithmForSuffix(".properties", propertiesAlgorithm);
+
+        assertSame(xmlAlgorithm, d.chooseAlgorithm("/a/pom.xml", bytes(10), bytes(10)));
+        assertSame(xmlAlgorithm, d.chooseAlgorithm("/a/pom.xml", bytes(5000), bytes(5000)));
+        assertSame(propertiesAlgorithm, d.chooseAlgorithm("/a/b.properties", bytes(10), bytes(10)));
+        assertSame(this.defaultAlgorithm, d.chooseAlgorithm("/a/xml", bytes(10), bytes(10)));
+    }
+
+    @Test
+    public void testDispatchesByPathOfNewFile() {
+        final DispatchingDiffAlgorithm d = this.createDispatcher(1000, 1000000);
+        final StubDiffAlgorithm xmlAlgorithm = new StubDiffAlgorithm();
+        d.addAlgorithmForSuffix(".xml", xmlAlgorithm);
+
+        d.determineDiff(
+                ChangestructureFactory.createFileInRevision("/a/old.txt", null), ScannedText.scan(bytes(1)),
+                ChangestructureFactory.createFileInRevision("/a/new.xml", null), ScannedText.scan(bytes(1)),
+                "UTF-8",
+                DiffBudget.unlimited());
+        d.determineDiff(
+                ChangestructureFactory.createFileInRevision("/a/old.xml", null), bytes(1),
+                ChangestructureFactory.createFileInRevision("/a/new.txt", null), bytes(1),
+                "UTF-8");
+
+        assertEquals(1, xmlAlgorithm.callCount);
+        assertEquals(1, this.defaultAlgorithm.callCount);
+        assertEquals(0, this.largeFileAlgorithm.callCount);
+    }
+
+    @Test
+    public void testCreateByName() {
+        for (final String name : Arrays.asList("myers", "linearSpaceMyers", "histogram", "simple")) {
+            final IDiffAlgorithm algorithm = DiffAlgorithmFactory.createByName(name);
+            assertEquals(name, ((CachingDiffAlgorithm) algorithm).getAlgorithmId().split("/")[0]);
+        }
+    }
+
+    @Test(expected = ReviewtoolException.class)
+    public void testCreateByUnknownName() {
+        DiffAlgorithmFactory.createByName("patience");
+    }
+
+    @Test
+    public void testConfiguredAlgorithms() throws Exception {
+        new DiffAlgorithmConfigurator().configure(parse(
+                "<diffAlgorithm default=\"histogram\" largeFiles=\"simple\" largeFileThreshold=\"100\">"
+                + "<fileType suffix=\".xml\" algorithm=\"linearSpaceMyers\"/>"
+                + "</diffAlgorithm>"), null);
+        final IDiffAlgorithm configured = DiffAlgorithmFactory.createDefault();
+
+        assertEquals("histogram", algorithmIdFor(configured, "/a/X.java", bytes(10), bytes(10)).split("/")[0]);
+        assertEquals("simple", algorithmIdFor(configured, "/a/X.java", bytes(60), bytes(60)).split("/")[0]);
+        assertEquals("linearSpaceMyers",
+                algorithmIdFor(configured, "/a/b.xml", bytes(60), bytes(60)).split("/")[0]);
+    }
+
+    @Test
+    public void testConfigurationDefaults() throws Exception {
+        new DiffAlgorithmConfigurator().configure(parse("<diffAlgorithm/>"), null);
+        final IDiffAlgorithm configured = DiffAlgorithmFactory.createDefault();
+
+        assertEquals("myers", algorithmIdFor(configured, "/a/X.java", bytes(10), bytes(10)).split("/")[0]);
+        assertEquals("histogram", algorithmIdFor(configured, "/a/X.java",
+                bytes((int) DiffAlgorithmFactory.DEFAULT_LARGE_FILE_THRESHOLD), bytes(1)).split("/")[0]);
+    }
+
+    @Test
+    public void testUnknownNameInConfigurationKeepsPreviousDefault() throws Exception {
+        final IDiffAlgorithm before = DiffAlgorithmFactory.createDefault();
+        try {
+            new DiffAlgorithmConfigurator().configure(parse(
+                    "<diffAlgorithm><fileType suffix=\".xml\" algorithm=\"xmlDiff\"/></diffAlgorithm>"), null);
+            fail("expected exception");
+        } catch (final ReviewtoolException e) {
+            assertSame(before, DiffAlgorithmFactory.createDefault());
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link HistogramDiff}.
+ */
+public class HistogramDiffTest {
+
+    private static String[] lines(String s) {
+        return s.isEmpty() ? new String[0] : s.split(",");
+    }
+
+    private static String diff(String oldContent, String newContent) {
+        final String[] oldLines = lines(oldContent);
+        final String[] newLines = lines(newContent);
+        final PathNode path = new HistogramDiff().buildPath(
+                new FullFileView<>(oldLines), new FullFileView<>(newLines));
+        DiffPathChecks.checkValidAndCountChangedLines(path, oldLines, newLines);
+        return path.toString();
+    }
+
+    @Test
+    public void testSimpleChanges() {
+        assertEquals("[(0,0)(0,0)]", diff("", ""));
+        assertEquals("[(3,3)(0,0)]", diff("a,b,c", "a,b,c"));
+        assertEquals("[(3,3)(2,2)(1,1)(0,0)]", diff("a,b,c", "a,x,c"));
+        assertEquals("[(0,2)(0,2)(0,0)]", diff("", "a,b"));
+    }
+
+    @Test
+    public void testUniqueLinesAreUsedAsAnchors() {
+        //a minimal diff would match all four x, histogram diff matches the unique line
+        assertEquals("[(5,5)(3,3)(3,1)(2,0)(0,0)]", diff("x,x,u,x,x", "u,x,x,x,x"));
+        assertEquals("[(4,4)(3,3)(2,2)(0,0)]", diff("foo,},bar,}", "foo,},baz,}"));
+    }
+
+    private static int countChangedLinesWithoutDiffingRegionsWithoutAnchor(String[] oldLines, String[] newLines) {
+        final PathNode path = new HistogramDiff(DiffCostCounter.unlimited(), false).buildPath(
+                new FullFileView<>(oldLines), new FullFileView<>(newLines));
+        return DiffPathChecks.checkValidAndCountChangedLines(path, oldLines, newLines);
+    }
+
+    /**
+     * Returns the given line repeated count times, between two other lines.
+     */
+    private static String[] repeatBetween(String first, String line, int count, String last) {
+        final String[] ret = new String[count + 2];
+        Arrays.fill(ret, line);
+        ret[0] = first;
+        ret[count + 1] = last;
+        return ret;
+    }
+
+    @Test
+    public void testLinesOccurringMoreThanMaxChainLengthAreNoAnchors() {
+        //with x as anchor, all lines but one x are changed. Without an anchor, the whole region is replaced
+        assertEquals(64 + 2 - 1 + 2, countChangedLinesWithoutDiffingRegionsWithoutAnchor(
+                repeatBetween("a", "x", 64, "b"), repeatBetween("c", "x", 1, "d")));
+        assertEquals(65 + 2 + 3, countChangedLinesWithoutDiffingRegionsWithoutAnchor(
+                repeatBetween("a", "x", 65, "b"), repeatBetween("c", "x", 1, "d")));
+    }
+
+    @Test
+    public void testRandomFilesGiveValidPath() {
+        final Random r = new Random(77);
+        for (int i = 0; i < 2000; i++) {
+            final int alphabetSize = 1 + r.nextInt(80);
+            final String[] oldLines = DiffPathChecks.randomLines(r, 49, alphabetSize);
+            final String[] newLines = DiffPathChecks.randomLines(r, 49, alphabetSize);
+            DiffPathChecks.checkValidAndCountChangedLines(new HistogramDiff().buildPath(
+                    new FullFileView<>(oldLines), new FullFileView<>(newLines)), oldLines, newLines);
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link InternedMyersDiff}.
+ */
+public class InternedMyersDiffTest {
+
+    private static void checkSameAsMyersDiff(String[] oldLines, String[] newLines) {
+        final FullFileView<String> oldFile = new FullFileView<>(oldLines);
+        final FullFileView<String> newFile = new FullFileView<>(newLines);
+        assertEquals(
+                new MyersDiff().buildPath(oldFile, newFile).toString(),
+                new InternedMyersDiff().buildPath(oldFile, newFile).toString());
+    }
+
+    @Test
+    public void testEmptyFiles() {
+        checkSameAsMyersDiff(new String[0], new String[0]);
+        checkSameAsMyersDiff(new String[0], new String[] {"a", "b"});
+        checkSameAsMyersDiff(new String[] {"a", "b"}, new String[0]);
+    }
+
+    @Test
+    public void testSimpleChanges() {
+        checkSameAsMyersDiff(new String[] {"a", "b", "c"}, new String[] {"a", "b", "c"});
+        checkSameAsMyersDiff(new String[] {"a", "b", "c"}, new String[] {"a", "x", "c"});
+        checkSameAsMyersDiff(new String[] {"a", "b", "c"}, new String[] {"x", "a", "b", "c", "y"});
+        checkSameAsMyersDiff(new String[] {"a", "b", "c", "d"}, new String[] {"b", "d"});
+    }
+
+    @Test
+    public void testRandomFilesGiveSamePathAsMyersDiff() {
+        final Random r = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            final int alphabetSize = 1 + r.nextInt(6);
+            checkSameAsMyersDiff(
+                    DiffPathChecks.randomLines(r, 30, alphabetSize), DiffPathChecks.randomLines(r, 30, alphabetSize));
+        }
+    }
+
+}
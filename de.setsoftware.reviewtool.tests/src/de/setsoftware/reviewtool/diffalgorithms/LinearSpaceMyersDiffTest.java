@@ -0,0 +1,43 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LinearSpaceMyersDiff}.
+ */
+public class LinearSpaceMyersDiffTest {
+
+    private static void checkMinimalAndValid(String[] oldLines, String[] newLines) {
+        final FullFileView<String> oldFile = new FullFileView<>(oldLines);
+        final FullFileView<String> newFile = new FullFileView<>(newLines);
+        final PathNode expected = new MyersDiff().buildPath(oldFile, newFile);
+        final PathNode actual = new LinearSpaceMyersDiff().buildPath(oldFile, newFile);
+        assertEquals(
+                DiffPathChecks.checkValidAndCountChangedLines(expected, oldLines, newLines),
+                DiffPathChecks.checkValidAndCountChangedLines(actual, oldLines, newLines));
+    }
+
+    @Test
+    public void testSimpleChanges() {
+        checkMinimalAndValid(new String[0], new String[0]);
+        checkMinimalAndValid(new String[0], new String[] {"a"});
+        checkMinimalAndValid(new String[] {"a", "b", "c"}, new String[] {"a", "b", "c"});
+        checkMinimalAndValid(new String[] {"a", "b", "c"}, new String[] {"a", "x", "c"});
+        checkMinimalAndValid(new String[] {"a", "b", "c", "d"}, new String[] {"x", "b", "d", "y"});
+    }
+
+    @Test
+    public void testRandomFilesGiveMinimalPath() {
+        final Random r = new Random(123);
+        for (int i = 0; i < 2000; i++) {
+            final int alphabetSize = 1 + r.nextInt(6);
+            checkMinimalAndValid(
+                    DiffPathChecks.randomLines(r, 40, alphabetSize), DiffPathChecks.randomLines(r, 40, alphabetSize));
+        }
+    }
+
+}
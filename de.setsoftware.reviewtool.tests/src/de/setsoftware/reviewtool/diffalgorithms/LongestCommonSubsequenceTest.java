@@ -0,0 +1,83 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LongestCommonSubsequence}.
+ */
+public class LongestCommonSubsequenceTest {
+
+    private static final Pattern MATCHED_PAIR = Pattern.compile("(\\d+)=(\\d+)");
+
+    private static String lcs(String[] items1, String[] items2) {
+        final OneFileView<String> file1 = new FullFileView<>(items1);
+        final OneFileView<String> file2 = new FullFileView<>(items2);
+        final ItemMatching<String> matching = new ItemMatching<>(file1, file2);
+        LongestCommonSubsequence.determineLcs(file1, file2, matching);
+        return matching.toString();
+    }
+
+    private static int lcsLengthWithDynamicProgramming(String[] items1, String[] items2) {
+        final int[][] table = new int[items1.length + 1][items2.length + 1];
+        for (int i = 1; i <= items1.length; i++) {
+            for (int j = 1; j <= items2.length; j++) {
+                if (items1[i - 1].equals(items2[j - 1])) {
+                    table[i][j] = table[i - 1][j - 1] + 1;
+                } else {
+                    table[i][j] = Math.max(table[i - 1][j], table[i][j - 1]);
+                }
+            }
+        }
+        return table[items1.length][items2.length];
+    }
+
+    private static String[] randomItems(Random random, int count, int alphabetSize) {
+        final String[] ret = new String[count];
+        for (int i = 0; i < count; i++) {
+            ret[i] = Character.toString((char) ('a' + random.nextInt(alphabetSize)));
+        }
+        return ret;
+    }
+
+    @Test
+    public void testSimpleCases() {
+        assertEquals("{}", lcs(new String[0], new String[] {"a"}));
+        assertEquals("{}", lcs(new String[] {"a"}, new String[] {"b"}));
+        assertEquals("{0=0}", lcs(new String[] {"a"}, new String[] {"a"}));
+        assertEquals("{0=1, 2=2}", lcs(new String[] {"a", "b", "c"}, new String[] {"x", "a", "c"}));
+        assertEquals("{0=1}", lcs(new String[] {"b"}, new String[] {"a", "b", "c"}));
+        assertEquals("{1=0}", lcs(new String[] {"a", "b", "c"}, new String[] {"b"}));
+        assertEquals("{0=1, 1=3}", lcs(new String[] {"x", "y"}, new String[] {"a", "x", "b", "y", "c"}));
+    }
+
+    @Test
+    public void testLengthIsMaximalAndMatchingIsValid() {
+        final Random random = new Random(42);
+        for (int run = 0; run < 300; run++) {
+            final String[] items1 = randomItems(random, random.nextInt(200), 1 + random.nextInt(6));
+            final String[] items2 = randomItems(random, random.nextInt(200), 1 + random.nextInt(6));
+            final Matcher matcher = MATCHED_PAIR.matcher(lcs(items1, items2));
+            int count = 0;
+            int last1 = -1;
+            int last2 = -1;
+            while (matcher.find()) {
+                final int index1 = Integer.parseInt(matcher.group(1));
+                final int index2 = Integer.parseInt(matcher.group(2));
+                assertTrue(index1 > last1 && index2 > last2);
+                assertEquals(items1[index1], items2[index2]);
+                last1 = index1;
+                last2 = index2;
+                count++;
+            }
+            assertEquals(lcsLengthWithDynamicProgramming(items1, items2), count);
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.base.Pair;
+import de.setsoftware.reviewtool.model.api.IFragment;
+import de.setsoftware.reviewtool.model.changestructure.ChangestructureFactory;
+
+/**
+ * Tests for {@link MyersSourceDiffAlgorithm} that compare the results of the linear space engine (used above
+ * the linear space threshold) with the results of the default engine.
+ */
+public class MyersSourceDiffAlgorithmTest {
+
+    private static List<Pair<IFragment, IFragment>> determineDiff(
+            MyersSourceDiffAlgorithm algorithm, String oldContent, String newContent) throws Exception {
+        return algorithm.determineDiff(
+                ChangestructureFactory.createFileInRevision("", null),
+                oldContent.getBytes("UTF-8"),
+                ChangestructureFactory.createFileInRevision("", null),
+                newContent.getBytes("UTF-8"),
+                "UTF-8");
+    }
+
+    private static void checkSameFragments(String oldContent, String newContent) throws Exception {
+        assertEquals(
+                fragmentsAsText(determineDiff(new MyersSourceDiffAlgorithm(), oldContent, newContent)),
+                fragmentsAsText(determineDiff(new MyersSourceDiffAlgorithm(0), oldContent, newContent)));
+    }
+
+    private static List<String> fragmentsAsText(List<Pair<IFragment, IFragment>> diff) {
+        final List<String> ret = new ArrayList<>();
+        for (final Pair<IFragment, IFragment> p : diff) {
+            ret.add(p.getFirst().getFrom() + "-" + p.getFirst().getTo()
+                    + " -> " + p.getSecond().getFrom() + "-" + p.getSecond().getTo());
+        }
+        return ret;
+    }
+
+    private static List<String> newFragmentsAsText(List<Pair<IFragment, IFragment>> diff) {
+        final List<String> ret = new ArrayList<>();
+        for (final Pair<IFragment, IFragment> p : diff) {
+            ret.add(p.getSecond().getFrom() + "-" + p.getSecond().getTo());
+        }
+        return ret;
+    }
+
+    private static String lines(String... lines) {
+        final StringBuilder ret = new StringBuilder();
+        for (final String line : lines) {
+            ret.append(line).append("\r\n");
+        }
+        return ret.toString();
+    }
+
+    private static final String CLASS = lines(
+            "package a;",
+            "",
+            "public class X {",
+            "",
+            "    private int a;",
+            "",
+            "    public void foo() {",
+            "        this.a++;",
+            "    }",
+            "",
+            "    public void bar() {",
+            "        this.a--;",
+            "    }",
+            "}");
+
+    @Test
+    public void testSameFragmentsForTypicalSourceChanges() throws Exception {
+        checkSameFragments("", "");
+        checkSameFragments(CLASS, CLASS);
+        checkSameFragments("", CLASS);
+        checkSameFragments(CLASS, "");
+        //changed line
+        checkSameFragments(CLASS, CLASS.replace("this.a++;", "this.a += 2;"));
+        //added method, the post processing moves the diff so that it starts with the method
+        checkSameFragments(CLASS, CLASS.replace(
+                lines("    }", "}"),
+                lines("    }", "", "    public void baz() {", "        this.a = 0;", "    }", "}")));
+        //removed method
+        checkSameFragments(CLASS, CLASS.replace(
+                lines("", "    public void bar() {", "        this.a--;", "    }"),
+                ""));
+        //several changes at once
+        checkSameFragments(CLASS, CLASS
+                .replace("package a;", "package b;")
+                .replace("private int a;", "private long a;")
+                .replace(lines("        this.a--;"), lines("        this.a--;", "        this.a--;")));
+    }
+
+    @Test
+    public void testSameFragmentsForLargeFileWithScatteredChanges() throws Exception {
+        final StringBuilder oldContent = new StringBuilder();
+        final StringBuilder newContent = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            final String line = "    call" + i + "();\r\n";
+            oldContent.append(line);
+            if (i % 1000 == 17) {
+                newContent.append("    inserted" + i + "();\r\n");
+            }
+            if (i % 1500 == 3) {
+                newContent.append("    changed" + i + "();\r\n");
+            } else if (i % 2500 != 9) {
+                newContent.append(line);
+            }
+        }
+        checkSameFragments(oldContent.toString(), newContent.toString());
+    }
+
+    /**
+     * When there are several minimal diffs, the engines can choose different ones and the post processing does
+     * not always unify them. This happens with repeated lines, which can be matched to either occurrence, and
+     * with a deleted line next to an inserted line, which can become a changed line instead. The number of
+     * changed lines is the same for both.
+     */
+    @Test
+    public void testDifferentMinimalDiffWithRepeatedLines() throws Exception {
+        final String oldContent = lines("a");
+        final String newContent = lines("b", "a", "a", "b");
+        final List<Pair<IFragment, IFragment>> defaultDiff =
+                determineDiff(new MyersSourceDiffAlgorithm(), oldContent, newContent);
+        final List<Pair<IFragment, IFragment>> linearSpaceDiff =
+                determineDiff(new MyersSourceDiffAlgorithm(0), oldContent, newContent);
+
+        assertNotEquals(fragmentsAsText(defaultDiff), fragmentsAsText(linearSpaceDiff));
+        assertEquals(Arrays.asList("1:1-2:1", "3:1-5:1"), newFragmentsAsText(defaultDiff));
+        assertEquals(Arrays.asList("1:1-3:1", "4:1-5:1"), newFragmentsAsText(linearSpaceDiff));
+    }
+
+    /**
+     * Lines that occur exactly once in both files are matched as anchors by the linear space engine, even if this
+     * prevents a minimal diff. This happens when such a line moves past repeated lines.
+     */
+    @Test
+    public void testAnchorCanPreventMinimalDiff() throws Exception {
+        final String oldContent = lines("u", "a", "a");
+        final String newContent = lines("a", "a", "u");
+        assertEquals(
+                Arrays.asList("1:1-2:1 -> 1:1-1:1", "4:1-4:1 -> 3:1-4:1"),
+                fragmentsAsText(determineDiff(new MyersSourceDiffAlgorithm(), oldContent, newContent)));
+        assertEquals(
+                Arrays.asList("1:1-1:1 -> 1:1-3:1", "2:1-4:1 -> 4:1-4:1"),
+                fragmentsAsText(determineDiff(new MyersSourceDiffAlgorithm(0), oldContent, newContent)));
+    }
+
+}
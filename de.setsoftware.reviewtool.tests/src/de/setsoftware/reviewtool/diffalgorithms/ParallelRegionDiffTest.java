@@ -0,0 +1,61 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParallelRegionDiff}.
+ */
+public class ParallelRegionDiffTest {
+
+    private static PathNode diffInParallel(String[] oldLines, String[] newLines) {
+        return new ParallelRegionDiff(DiffCostCounter.unlimited(), 1).buildPath(
+                new FullFileView<>(oldLines), new FullFileView<>(newLines));
+    }
+
+    @Test
+    public void testScatteredEditsGiveMinimalPath() {
+        final Random r = new Random(99);
+        for (int i = 0; i < 200; i++) {
+            final String[] oldLines = new String[200];
+            final String[] newLines = new String[200];
+            for (int j = 0; j < oldLines.length; j++) {
+                oldLines[j] = "line " + j;
+                newLines[j] = r.nextInt(10) == 0 ? "changed " + j : "line " + j;
+            }
+            final PathNode expected = new LinearSpaceMyersDiff().buildPath(
+                    new FullFileView<>(oldLines), new FullFileView<>(newLines));
+            assertEquals(
+                    DiffPathChecks.checkValidAndCountChangedLines(expected, oldLines, newLines),
+                    DiffPathChecks.checkValidAndCountChangedLines(
+                            diffInParallel(oldLines, newLines), oldLines, newLines));
+        }
+    }
+
+    @Test
+    public void testRandomFilesGiveValidPath() {
+        final Random r = new Random(5);
+        for (int i = 0; i < 2000; i++) {
+            final int alphabetSize = 1 + r.nextInt(80);
+            final String[] oldLines = DiffPathChecks.randomLines(r, 50, alphabetSize);
+            final String[] newLines = DiffPathChecks.randomLines(r, 50, alphabetSize);
+            DiffPathChecks.checkValidAndCountChangedLines(diffInParallel(oldLines, newLines), oldLines, newLines);
+        }
+    }
+
+    @Test(expected = DiffBudgetExceededException.class)
+    public void testBudgetIsEnforcedInAllRegions() {
+        final String[] oldLines = new String[1000];
+        final String[] newLines = new String[1000];
+        for (int j = 0; j < oldLines.length; j++) {
+            oldLines[j] = j % 10 == 0 ? "anchor " + j : "old " + j;
+            newLines[j] = j % 10 == 0 ? "anchor " + j : "new " + j;
+        }
+        new ParallelRegionDiff(new DiffBudget(50, Long.MAX_VALUE).start(), 1).buildPath(
+                new FullFileView<>(oldLines), new FullFileView<>(newLines));
+    }
+
+}
@@ -0,0 +1,51 @@
+package de.setsoftware.reviewtool.diffalgorithms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import de.setsoftware.reviewtool.base.ScannedText;
+
+/**
+ * Tests for {@link StartLineSuitability}.
+ */
+public class StartLineSuitabilityTest {
+
+    private static short suitability(String line) {
+        return StartLineSuitability.determineFor(line);
+    }
+
+    @Test
+    public void testOrderOfTypes() {
+        assertTrue(suitability("/** doc") > suitability("@Override"));
+        assertTrue(suitability("@Override") > suitability("void foo() {"));
+        assertTrue(suitability("void foo() {") > suitability("int x = 1;"));
+        assertTrue(suitability("int x = 1;") > suitability(""));
+        assertTrue(suitability("") > suitability("}"));
+        assertTrue(suitability("]") > suitability(")"));
+        assertTrue(suitability(")") > suitability("</tag>"));
+    }
+
+    @Test
+    public void testLessIndentationIsBetter() {
+        assertTrue(suitability("void foo() {") > suitability("    void foo() {"));
+        assertTrue(suitability("  void foo() {") > suitability("\tvoid foo() {"));
+        assertEquals(suitability("    x"), suitability("\tx"));
+        assertTrue(suitability("    void foo() {") > suitability("int x = 1;"));
+    }
+
+    @Test
+    public void testBytesGiveSameResultAsString() {
+        final String text = "/* a\n  @Deprecated\n\tif (x) {  \n}\n</a>\n  )\n]\n   \n\nfoo\n  /\n<\nä{\n x\n";
+        final ScannedText scanned = ScannedText.scan(text.getBytes(StandardCharsets.UTF_8));
+        final String[] lines = text.split("\n", -1);
+        assertEquals(lines.length - 1, scanned.getLineCount());
+        for (int i = 0; i < scanned.getLineCount(); i++) {
+            assertEquals(lines[i], suitability(lines[i]), StartLineSuitability.determineFor(scanned, i));
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package de.setsoftware.reviewtool.model.changestructure;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link FileHistoryIndex}.
+ */
+public class FileHistoryIndexTest {
+
+    private static FileHistoryNode node(String path, long revision) {
+        return new FileHistoryNode(ChangestructureFactory.createFileInRevision(
+                path, ChangestructureFactory.createRepoRevision(revision, StubRepo.INSTANCE)), false);
+    }
+
+    private static FileHistoryNode put(FileHistoryIndex index, String path, long revision) {
+        final FileHistoryNode node = node(path, revision);
+        index.put(node, revision);
+        return node;
+    }
+
+    @Test
+    public void testEmptyIndex() {
+        final FileHistoryIndex index = new FileHistoryIndex();
+        assertFalse(index.contains("/a/b", StubRepo.INSTANCE));
+        assertNull(index.findLatestBefore("/a/b", StubRepo.INSTANCE, 5));
+        assertNull(index.get(node("/a/b", 5).getFile(), 5));
+    }
+
+    @Test
+    public void testParentPathIsNotContainedWithoutOwnNodes() {
+        final FileHistoryIndex index = new FileHistoryIndex();
+        put(index, "/a/b/c", 3);
+        assertTrue(index.contains("/a/b/c", StubRepo.INSTANCE));
+        assertFalse(index.contains("/a/b", StubRepo.INSTANCE));
+        assertFalse(index.contains("/a/b/c/d", StubRepo.INSTANCE));
+        assertFalse(index.contains("/a/bb/c", StubRepo.INSTANCE));
+    }
+
+    @Test
+    public void testNodesAreSortedByRevision() {
+        final FileHistoryIndex index = new FileHistoryIndex();
+        final FileHistoryNode n7 = put(index, "/a", 7);
+        final FileHistoryNode n2 = put(index, "/a", 2);
+        final FileHistoryNode n5 = put(index, "/a", 5);
+        put(index, "/b", 4);
+        assertSame(n2, index.findLatestBefore("/a", StubRepo.INSTANCE, 3));
+        assertSame(n5, index.findLatestBefore("/a", StubRepo.INSTANCE, 6));
+        assertSame(n7, index.findLatestBefore("/a", StubRepo.INSTANCE, 8));
+        assertSame(n5, index.get(n5.getFile(), 5));
+    }
+
+    @Test
+    public void testGetForExactRevision() {
+        final FileHistoryIndex index = new FileHistoryIndex();
+        put(index, "/a", 2);
+        final FileHistoryNode n5 = put(index, "/a", 5);
+        put(index, "/a", 7);
+        assertSame(n5, index.get(node("/a", 5).getFile(), 5));
+        assertNull(index.get(node("/a", 6).getFile(), 6));
+    }
+
+    @Test
+    public void testFindLatestBefore() {
+        final FileHistoryIndex index = new FileHistoryIndex();
+        final FileHistoryNode n2 = put(index, "/a", 2);
+        final FileHistoryNode n5 = put(index, "/a", 5);
+        final FileHistoryNode n7 = put(index, "/a", 7);
+        assertNull(index.findLatestBefore("/a", StubRepo.INSTANCE, 2));
+        assertSame(n2, index.findLatestBefore("/a", StubRepo.INSTANCE, 3));
+        assertSame(n2, index.findLatestBefore("/a", StubRepo.INSTANCE, 5));
+        assertSame(n5, index.findLatestBefore("/a", StubRepo.INSTANCE, 6));
+        assertSame(n7, index.findLatestBefore("/a", StubRepo.INSTANCE, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testFindLatestBeforeReturnsFirstAddedForEqualOrder() {
+        final FileHistoryIndex index = new FileHistoryIndex();
+        final FileHistoryNode first = node("/a", 4);
+        final FileHistoryNode second = node("/a", 4);
+        index.put(first, 4);
+        index.put(second, 4);
+        assertSame(first, index.findLatestBefore("/a", StubRepo.INSTANCE, 5));
+    }
+
+}